@@ -0,0 +1,240 @@
+package com.ubs.db.tablesync.benchmark;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.domain.OpenAddressingHashStore;
+import com.ubs.db.tablesync.domain.SyncSettings;
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+import com.ubs.db.tablesync.model.TableDefinition;
+import com.ubs.db.tablesync.persistence.ConflictRepository;
+import com.ubs.db.tablesync.persistence.TableRepository;
+import com.ubs.db.tablesync.service.ConflictHandler;
+import com.ubs.db.tablesync.service.RowHashService;
+import com.ubs.db.tablesync.service.TableDataManager;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * In-memory H2 database migrated with application scripts, which task definition tables are filled with equal rows.
+ */
+class BenchmarkDatabase implements AutoCloseable {
+
+    static final TableDefinition TABLE = new TableDefinition("task_definition", "task_definition",
+            "task_definition_mirror", "id", Arrays.asList("id", "name", "description"));
+
+    private static final int INSERT_BATCH = 10_000;
+
+    private static final long SELECTION_RANGE = 1_000_000;
+
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConflictHandler conflictHandler = new ConflictHandler();
+
+    private final ExecutorService stageExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sync-stage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param url H2 database URL, e.g. of a file database for tables too large for memory
+     */
+    BenchmarkDatabase(String url) {
+        dataSource.setURL(url);
+        dataSource.setUser("sa");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        ConflictRepository conflictRepository = new ConflictRepository();
+        ReflectionTestUtils.setField(conflictRepository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(conflictHandler, "conflictRepository", conflictRepository);
+        ReflectionTestUtils.setField(conflictHandler, "queueCapacity", 10_000);
+        ReflectionTestUtils.setField(conflictHandler, "batchSize", 500);
+        conflictHandler.start();
+    }
+
+    /**
+     * @param name database name, unique within JVM
+     * @return migrated in-memory database
+     */
+    static BenchmarkDatabase inMemory(String name) {
+        return new BenchmarkDatabase("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Creates synchronizer of task definition tables, which does a full scan on each synchronization unless range
+     * diff is enabled.
+     *
+     * @param expectedRows    initial capacity of hash store
+     * @param hashPushdown    whether rows are hashed by database
+     * @param rangeDiffFanout range diff fanout, less than 2 disables range diff
+     * @param parallelism     number of partitions synchronized concurrently, parallel sync uses common pool
+     * @param pipelineDepth   number of chunks read ahead by pipeline stages, 0 disables pipeline
+     */
+    TableSynchronizer newSynchronizer(int expectedRows, boolean hashPushdown, int rangeDiffFanout, int parallelism,
+                                      int pipelineDepth) {
+        TableSynchronizer synchronizer = new TableSynchronizer();
+        synchronizer.setTable(TABLE);
+        synchronizer.setDataManager(new TableDataManager(TABLE.getName(),
+                repository(TABLE.getMainTable()), repository(TABLE.getMirrorTable())));
+        synchronizer.setHashService(new RowHashService(TABLE, HashAlgorithm.XXHASH64));
+        synchronizer.setConflictHandler(conflictHandler);
+        synchronizer.setHashStore(new OpenAddressingHashStore(expectedRows, false));
+        SyncSettings settings = new SyncSettings();
+        settings.setBatchSize(500);
+        settings.setHashPushdown(hashPushdown);
+        settings.setRangeDiffFanout(rangeDiffFanout);
+        settings.setRangeDiffLeafSize(1000);
+        settings.setParallelism(parallelism);
+        settings.setPartitions(parallelism * 4);
+        settings.setPartitionSampleSize(10_000);
+        settings.setPipelineDepth(pipelineDepth);
+        settings.setPipelineChunkSize(256);
+        settings.setQuarantineAttempts(3);
+        synchronizer.setSettings(settings);
+        synchronizer.setSyncExecutor(ForkJoinPool.commonPool());
+        synchronizer.setPipelineExecutor(stageExecutor);
+        synchronizer.setTransactionManager(new DataSourceTransactionManager(dataSource));
+        return synchronizer;
+    }
+
+    /**
+     * Replaces rows of both tables with the same given number of rows.
+     */
+    void fill(int rows) {
+        for (String table : Arrays.asList(TABLE.getMainTable(), TABLE.getMirrorTable())) {
+            jdbcTemplate.execute("DELETE FROM " + table);
+            List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+            for (long id = 1; id <= rows; id++) {
+                batch.add(new Object[]{id, "Task " + id, "Description of task " + id});
+                if (batch.size() == INSERT_BATCH || id == rows) {
+                    jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, name, description) VALUES (?, ?, ?)",
+                            batch);
+                    batch.clear();
+                }
+            }
+        }
+        clearChangeLogs();
+    }
+
+    /**
+     * Changes description of given share of mirror rows, spread evenly over IDs.
+     *
+     * @param ratio share of rows to change, 0 changes nothing
+     * @param round value written into changed rows, must differ from the previous call
+     * @return number of changed rows
+     */
+    int diverge(double ratio, int round) {
+        if (ratio <= 0) {
+            return 0;
+        }
+        long step = Math.max(1, Math.round(1 / ratio));
+        return jdbcTemplate.update("UPDATE " + TABLE.getMirrorTable() + " SET description = ? WHERE MOD(id, ?) = 0",
+                "Changed in round " + round, step);
+    }
+
+    /**
+     * Inserts rows with IDs above current max ID into one table only.
+     *
+     * @return number of inserted rows
+     */
+    int insertOneSided(String table, int rows, int round) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT GREATEST(COALESCE((SELECT MAX(id) FROM "
+                + TABLE.getMainTable() + "), 0), COALESCE((SELECT MAX(id) FROM " + TABLE.getMirrorTable()
+                + "), 0))", Long.class);
+        List<Object[]> batch = new ArrayList<>(Math.min(rows, INSERT_BATCH));
+        for (int i = 1; i <= rows; i++) {
+            long id = maxId + i;
+            batch.add(new Object[]{id, "Task " + id, "Inserted in round " + round});
+            if (batch.size() == INSERT_BATCH || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, name, description) VALUES (?, ?, ?)",
+                        batch);
+                batch.clear();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Changes description of pseudo-randomly selected share of rows of a table. Selection depends on salt, so
+     * different salts select mostly different rows and the same salt selects the same rows in both tables.
+     *
+     * @return number of changed rows
+     */
+    int updateShare(String table, double ratio, long salt, String description) {
+        return ratio <= 0 ? 0 : jdbcTemplate.update("UPDATE " + table + " SET description = ? WHERE " + selected(salt),
+                description, Math.round(ratio * SELECTION_RANGE));
+    }
+
+    /**
+     * Removes pseudo-randomly selected share of rows of a table, see {@link #updateShare}.
+     *
+     * @return number of removed rows
+     */
+    int deleteShare(String table, double ratio, long salt) {
+        return ratio <= 0 ? 0 : jdbcTemplate.update("DELETE FROM " + table + " WHERE " + selected(salt),
+                Math.round(ratio * SELECTION_RANGE));
+    }
+
+    /**
+     * @return number of rows of both tables, which have no equal row in the other table, so a conflicting row is
+     * counted twice
+     */
+    long countDifferences() {
+        String main = "SELECT id, name, description FROM " + TABLE.getMainTable();
+        String mirror = "SELECT id, name, description FROM " + TABLE.getMirrorTable();
+        return jdbcTemplate.queryForObject("SELECT (SELECT COUNT(*) FROM (" + main + " EXCEPT " + mirror + ")) + "
+                + "(SELECT COUNT(*) FROM (" + mirror + " EXCEPT " + main + "))", Long.class);
+    }
+
+    long countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static String selected(long salt) {
+        //multiplicative hash of shifted ID spreads selection over the whole table, salt moves the selected window
+        return "MOD(ABS((id + " + salt * 104_729 + ") * 2654435761), " + SELECTION_RANGE + ") < ?";
+    }
+
+    TableRepository repository(String tableName) {
+        return new TableRepository(jdbcTemplate, tableName, TABLE, 1000, 500, HashAlgorithm.XXHASH64, null);
+    }
+
+    void clearChangeLogs() {
+        jdbcTemplate.execute("DELETE FROM task_definition_change_log");
+        jdbcTemplate.execute("DELETE FROM task_definition_mirror_change_log");
+    }
+
+    @Override
+    public void close() {
+        try {
+            conflictHandler.stop();
+            stageExecutor.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+}
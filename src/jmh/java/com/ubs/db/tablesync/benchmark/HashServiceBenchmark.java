@@ -0,0 +1,61 @@
+package com.ubs.db.tablesync.benchmark;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.service.HashService;
+import com.ubs.db.tablesync.service.LegacyRowHashService;
+import com.ubs.db.tablesync.service.RowHashService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.ubs.db.tablesync.benchmark.BenchmarkDatabase.TABLE;
+
+/**
+ * Hashing of a task definition row by each HashService: current ones with every algorithm and the legacy MD5 one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashServiceBenchmark {
+
+    @Param({"XXHASH64", "MURMUR3_128", "LEGACY_MD5"})
+    private String service;
+
+    @Param({"16", "256"})
+    private int descriptionLength;
+
+    private HashService<Row> hashService;
+
+    private Row row;
+
+    @Setup
+    public void setUp() {
+        hashService = "LEGACY_MD5".equals(service)
+                ? new LegacyRowHashService(TABLE)
+                : new RowHashService(TABLE, HashAlgorithm.valueOf(service));
+        StringBuilder description = new StringBuilder();
+        while (description.length() < descriptionLength) {
+            description.append((char) ('a' + description.length() % 26));
+        }
+        row = new Row(42L, new Object[]{42L, "Task 42", description.toString()});
+    }
+
+    @Benchmark
+    public long hash() {
+        return hashService.hash(row);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ubs.db.tablesync.benchmark;
+
+import com.ubs.db.tablesync.domain.HashStore;
+import com.ubs.db.tablesync.domain.OpenAddressingHashStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and put throughput of OpenAddressingHashStore in heap and off-heap mode. IDs are visited in a scrambled
+ * order over the whole store, so lookups are not served from a few cache lines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class HashStoreBenchmark {
+
+    @Param({"100000", "10000000"})
+    private int entries;
+
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private HashStore store;
+
+    private long next;
+
+    @Setup
+    public void setUp() {
+        store = new OpenAddressingHashStore(entries, offHeap);
+        for (long id = 1; id <= entries; id++) {
+            store.put(id, id * 31);
+        }
+    }
+
+    @Benchmark
+    public boolean matches() {
+        long id = nextId();
+        return store.matches(id, id * 31);
+    }
+
+    @Benchmark
+    public void put() {
+        long id = nextId();
+        store.put(id, id * 17);
+    }
+
+    private long nextId() {
+        //golden ratio step visits every ID of the range in scrambled order
+        next = (next + 0x9E3779B97F4A7C15L) & Long.MAX_VALUE;
+        return next % entries + 1;
+    }
+}
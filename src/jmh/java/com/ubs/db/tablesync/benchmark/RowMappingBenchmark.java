@@ -0,0 +1,76 @@
+package com.ubs.db.tablesync.benchmark;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.TaskDefinition;
+import com.ubs.db.tablesync.persistence.MainTaskDefinitionRepository;
+import com.ubs.db.tablesync.persistence.TableRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.ubs.db.tablesync.benchmark.BenchmarkDatabase.TABLE;
+
+/**
+ * Reading and mapping task definitions from embedded H2: by ID through BaseTaskDefinitionRepository and as a page of
+ * generic rows mapped by column types through TableRepository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private BenchmarkDatabase database;
+
+    private MainTaskDefinitionRepository taskDefinitionRepository;
+
+    private TableRepository tableRepository;
+
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.inMemory("mapping");
+        database.fill(ROWS);
+        taskDefinitionRepository = new MainTaskDefinitionRepository();
+        ReflectionTestUtils.setField(taskDefinitionRepository, "jdbcTemplate", database.getJdbcTemplate());
+        ReflectionTestUtils.setField(taskDefinitionRepository, "mainTableName", TABLE.getMainTable());
+        tableRepository = new TableRepository(database.getJdbcTemplate(), TABLE.getMainTable(), TABLE, PAGE_SIZE,
+                500, HashAlgorithm.XXHASH64, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public TaskDefinition taskDefinitionById() {
+        nextId = nextId % ROWS + 1;
+        return taskDefinitionRepository.findById(nextId);
+    }
+
+    @Benchmark
+    public List<Row> rowPage() {
+        return tableRepository.findPage(0, Long.MAX_VALUE, PAGE_SIZE);
+    }
+}
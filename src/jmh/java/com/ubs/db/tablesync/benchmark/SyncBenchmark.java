@@ -0,0 +1,73 @@
+package com.ubs.db.tablesync.benchmark;
+
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scan synchronization of task definition tables in embedded H2. Before each invocation, given share of mirror
+ * rows is changed, so the invocation compares all rows and writes changed ones back to main.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SyncBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"0", "0.01", "0.1"})
+    private double divergence;
+
+    @Param({"false", "true"})
+    private boolean hashPushdown;
+
+    @Param({"0", "4"})
+    private int pipelineDepth;
+
+    private BenchmarkDatabase database;
+
+    private TableSynchronizer synchronizer;
+
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.inMemory("sync");
+        database.fill(rows);
+        synchronizer = database.newSynchronizer(rows, hashPushdown, 0, 1, pipelineDepth);
+        synchronizer.sync();
+    }
+
+    @Setup(Level.Invocation)
+    public void diverge() {
+        database.diverge(divergence, ++round);
+        database.clearChangeLogs();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int sync() {
+        return synchronizer.sync();
+    }
+}
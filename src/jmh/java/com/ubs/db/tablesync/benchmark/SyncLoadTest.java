@@ -0,0 +1,261 @@
+package com.ubs.db.tablesync.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.ubs.db.tablesync.benchmark.BenchmarkDatabase.TABLE;
+
+/**
+ * End-to-end load test of synchronization at production scale. Seeds both task definition tables with equal rows,
+ * synchronizes them once and then runs sync cycles. Before each cycle a mix of changes is applied: updates on each
+ * side, one-sided inserts and deletes, and conflicts changing the same rows on both sides. Wall time, rows/sec, peak
+ * heap and GC pauses of each cycle are written to a JSON report.
+ * <p>
+ * Options are passed as {@code key=value} arguments, shares are fractions of table rows:
+ * <ul>
+ * <li>{@code rows} (1000000) - initial number of rows in each table;</li>
+ * <li>{@code cycles} (5) - number of sync cycles after the initial one;</li>
+ * <li>{@code mainUpdates}, {@code mirrorUpdates} (0.01) - share of rows updated on each side;</li>
+ * <li>{@code mainInserts}, {@code mirrorInserts} (0.001) - share of rows inserted into one side;</li>
+ * <li>{@code mainDeletes}, {@code mirrorDeletes} (0.001) - share of rows deleted from one side;</li>
+ * <li>{@code conflicts} (0.0001) - share of rows updated differently on both sides;</li>
+ * <li>{@code hashPushdown} (true), {@code rangeDiffFanout} (0), {@code parallelism} (1),
+ * {@code pipelineDepth} (0) - synchronizer settings;</li>
+ * <li>{@code seed} (42) - selects changed rows, the same seed gives the same changes;</li>
+ * <li>{@code url} (in-memory H2) - database URL, a file database fits larger tables;</li>
+ * <li>{@code report} (target/sync-load-report.json) - report file.</li>
+ * </ul>
+ */
+public class SyncLoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rows", "1000000");
+        DEFAULTS.put("cycles", "5");
+        DEFAULTS.put("mainUpdates", "0.01");
+        DEFAULTS.put("mirrorUpdates", "0.01");
+        DEFAULTS.put("mainInserts", "0.001");
+        DEFAULTS.put("mirrorInserts", "0.001");
+        DEFAULTS.put("mainDeletes", "0.001");
+        DEFAULTS.put("mirrorDeletes", "0.001");
+        DEFAULTS.put("conflicts", "0.0001");
+        DEFAULTS.put("hashPushdown", "true");
+        DEFAULTS.put("rangeDiffFanout", "0");
+        DEFAULTS.put("parallelism", "1");
+        DEFAULTS.put("pipelineDepth", "0");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("url", "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1");
+        DEFAULTS.put("report", "target/sync-load-report.json");
+    }
+
+    private final Map<String, String> options;
+
+    private final GcPauses gcPauses = new GcPauses();
+
+    private SyncLoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + ", known ones: " + DEFAULTS.keySet());
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new SyncLoadTest(options).run();
+    }
+
+    private void run() throws IOException {
+        int rows = intOption("rows");
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        report.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        List<Map<String, Object>> cycles = new ArrayList<>();
+        report.put("cycles", cycles);
+
+        try (BenchmarkDatabase database = new BenchmarkDatabase(options.get("url"))) {
+            long seeding = System.currentTimeMillis();
+            database.fill(rows);
+            report.put("seedMillis", System.currentTimeMillis() - seeding);
+            log("%d rows are seeded in %d ms", rows, System.currentTimeMillis() - seeding);
+
+            TableSynchronizer synchronizer = database.newSynchronizer(rows,
+                    Boolean.parseBoolean(options.get("hashPushdown")), intOption("rangeDiffFanout"),
+                    intOption("parallelism"), intOption("pipelineDepth"));
+            cycles.add(cycle(0, database, synchronizer, new LinkedHashMap<>()));
+
+            for (int cycle = 1; cycle <= intOption("cycles"); cycle++) {
+                Map<String, Object> changes = applyChanges(database, cycle);
+                cycles.add(cycle(cycle, database, synchronizer, changes));
+            }
+        } finally {
+            gcPauses.close();
+        }
+
+        File reportFile = new File(options.get("report"));
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+        log("Report is written to %s", reportFile.getAbsolutePath());
+    }
+
+    private Map<String, Object> applyChanges(BenchmarkDatabase database, int cycle) {
+        long rows = database.countRows(TABLE.getMainTable());
+        long salt = Long.parseLong(options.get("seed")) * 31 + cycle * 8L;
+        String main = TABLE.getMainTable();
+        String mirror = TABLE.getMirrorTable();
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("mainUpdates", database.updateShare(main, share("mainUpdates"), salt,
+                "Main update in cycle " + cycle));
+        changes.put("mirrorUpdates", database.updateShare(mirror, share("mirrorUpdates"), salt + 1,
+                "Mirror update in cycle " + cycle));
+        changes.put("conflicts", Math.min(
+                database.updateShare(main, share("conflicts"), salt + 2, "Main conflict in cycle " + cycle),
+                database.updateShare(mirror, share("conflicts"), salt + 2, "Mirror conflict in cycle " + cycle)));
+        changes.put("mainDeletes", database.deleteShare(main, share("mainDeletes"), salt + 3));
+        changes.put("mirrorDeletes", database.deleteShare(mirror, share("mirrorDeletes"), salt + 4));
+        changes.put("mainInserts", database.insertOneSided(main, (int) (rows * share("mainInserts")), cycle));
+        changes.put("mirrorInserts", database.insertOneSided(mirror, (int) (rows * share("mirrorInserts")), cycle));
+        database.clearChangeLogs();
+        return changes;
+    }
+
+    private Map<String, Object> cycle(int cycle, BenchmarkDatabase database, TableSynchronizer synchronizer,
+                                      Map<String, Object> changes) {
+        long rows = Math.max(database.countRows(TABLE.getMainTable()), database.countRows(TABLE.getMirrorTable()));
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = heapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        gcPauses.reset();
+
+        long started = System.nanoTime();
+        int applied = synchronizer.sync();
+        long wallNanos = System.nanoTime() - started;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cycle", cycle);
+        result.put("rows", rows);
+        result.put("changes", changes);
+        result.put("applied", applied);
+        result.put("wallMillis", wallNanos / 1_000_000);
+        result.put("rowsPerSecond", rows * 1e9 / wallNanos);
+        result.put("peakHeapBytes", peakHeap);
+        result.put("gc", gcPauses.snapshot());
+        result.put("differencesAfterSync", database.countDifferences());
+        log("Cycle %d: %d rows, %d applied in %d ms, %.0f rows/s, peak heap %d MB", cycle, rows, applied,
+                wallNanos / 1_000_000, rows * 1e9 / wallNanos, peakHeap >> 20);
+        return result;
+    }
+
+    private double share(String option) {
+        return Double.parseDouble(options.get(option));
+    }
+
+    private int intOption(String option) {
+        return Integer.parseInt(options.get(option));
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.println(String.format(format, args));
+    }
+
+    /**
+     * Collects durations of GC pauses from garbage collector notifications.
+     */
+    private static class GcPauses implements NotificationListener, AutoCloseable {
+
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+        private long count;
+
+        private long totalMillis;
+
+        private long maxMillis;
+
+        GcPauses() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    NotificationEmitter emitter = (NotificationEmitter) collector;
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(javax.management.Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long duration = info.getGcInfo().getDuration();
+            count++;
+            totalMillis += duration;
+            maxMillis = Math.max(maxMillis, duration);
+        }
+
+        synchronized void reset() {
+            count = 0;
+            totalMillis = 0;
+            maxMillis = 0;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("pauses", count);
+            snapshot.put("totalPauseMillis", totalMillis);
+            snapshot.put("maxPauseMillis", maxMillis);
+            return snapshot;
+        }
+
+        @Override
+        public void close() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (javax.management.ListenerNotFoundException e) {
+                    //already removed
+                }
+            }
+        }
+    }
+}
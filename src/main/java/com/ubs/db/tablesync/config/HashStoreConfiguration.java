@@ -0,0 +1,43 @@
+package com.ubs.db.tablesync.config;
+
+import com.ubs.db.tablesync.domain.HashStoreFactory;
+import com.ubs.db.tablesync.domain.OpenAddressingHashStore;
+import com.ubs.db.tablesync.persistence.JournaledHashStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * Configuration of HashStores used by synchronizers. Each table pair has its own hash store, which is kept in memory
+ * only, unless a directory is configured for hash stores. Then each store is kept in a subdirectory named after its
+ * table pair.
+ */
+@Configuration
+public class HashStoreConfiguration {
+
+    @Value("${tableSync.hashStore.initialCapacity:1024}")
+    private int initialCapacity;
+
+    @Value("${tableSync.hashStore.offHeap:false}")
+    private boolean offHeap;
+
+    @Value("${tableSync.hashStore.path:}")
+    private String path;
+
+    @Value("${tableSync.hashStore.compactionThreshold:1000000}")
+    private long compactionThreshold;
+
+    @Bean
+    public HashStoreFactory hashStoreFactory() {
+        return name -> {
+            if (path.isEmpty()) {
+                return new OpenAddressingHashStore(initialCapacity, offHeap);
+            }
+            return new JournaledHashStore(Paths.get(path, name),
+                    expectedSize -> new OpenAddressingHashStore(Math.max(expectedSize, initialCapacity), offHeap),
+                    compactionThreshold);
+        };
+    }
+}
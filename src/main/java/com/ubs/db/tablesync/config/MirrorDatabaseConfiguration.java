@@ -0,0 +1,70 @@
+package com.ubs.db.tablesync.config;
+
+import com.ubs.db.tablesync.persistence.MirrorDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration of database of mirror tables. Without {@code tableSync.mirrorDataSource.url} mirror tables live in
+ * the application database. Otherwise they are read and written through a separate connection pool, which is
+ * migrated with the application scripts if {@code tableSync.mirrorDataSource.migrate} is set.
+ */
+@Configuration
+public class MirrorDatabaseConfiguration {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${tableSync.mirrorDataSource.url:}")
+    private String url;
+
+    @Value("${tableSync.mirrorDataSource.username:}")
+    private String username;
+
+    @Value("${tableSync.mirrorDataSource.password:}")
+    private String password;
+
+    @Value("${tableSync.mirrorDataSource.maximumPoolSize:10}")
+    private int maximumPoolSize;
+
+    @Value("${tableSync.mirrorDataSource.migrate:false}")
+    private boolean migrate;
+
+    @Bean(destroyMethod = "close")
+    public MirrorDatabase mirrorDatabase() {
+        if (url.isEmpty()) {
+            return new MirrorDatabase(dataSource, jdbcTemplate, transactionManager, false);
+        }
+        HikariDataSource mirrorDataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        mirrorDataSource.setPoolName("mirror");
+        mirrorDataSource.setMaximumPoolSize(maximumPoolSize);
+        if (migrate) {
+            Flyway flyway = new Flyway();
+            flyway.setDataSource(mirrorDataSource);
+            flyway.migrate();
+        }
+        return new MirrorDatabase(mirrorDataSource, new JdbcTemplate(mirrorDataSource),
+                new DataSourceTransactionManager(mirrorDataSource), true);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ubs.db.tablesync.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration of worker pool, which synchronizes ID ranges in parallel, and of pool running pipeline stages of each
+ * synchronization. Stage threads mostly wait for database or for each other, so their pool is not bounded.
+ * Reactive synchronizations of all table pairs share one bounded scheduler for their database calls.
+ */
+@Configuration
+public class SyncExecutorConfiguration {
+
+    @Value("${tableSync.parallel.threads:1}")
+    private int threads;
+
+    @Value("${tableSync.reactive.ioThreads:4}")
+    private int ioThreads;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService syncExecutor() {
+        return Executors.newFixedThreadPool(Math.max(1, threads), new CustomizableThreadFactory("sync-worker-"));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService syncStageExecutor() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sync-stage-");
+        threadFactory.setDaemon(true);
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler syncIoScheduler() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sync-io-");
+        threadFactory.setDaemon(true);
+        return Schedulers.fromExecutorService(Executors.newFixedThreadPool(Math.max(1, ioThreads), threadFactory));
+    }
+}
@@ -0,0 +1,223 @@
+package com.ubs.db.tablesync.config;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.domain.HashStore;
+import com.ubs.db.tablesync.domain.HashStoreFactory;
+import com.ubs.db.tablesync.domain.SyncSettings;
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.TableDefinition;
+import com.ubs.db.tablesync.persistence.BinarySyncJournal;
+import com.ubs.db.tablesync.persistence.MirrorDatabase;
+import com.ubs.db.tablesync.persistence.TableRepository;
+import com.ubs.db.tablesync.service.ConflictHandler;
+import com.ubs.db.tablesync.service.DataManager;
+import com.ubs.db.tablesync.service.JdbcReactiveDataManager;
+import com.ubs.db.tablesync.service.LegacyRowHashService;
+import com.ubs.db.tablesync.service.MicrometerSyncMetrics;
+import com.ubs.db.tablesync.service.RowHashService;
+import com.ubs.db.tablesync.service.TableDataManager;
+import com.ubs.db.tablesync.service.TableSyncRegistry;
+import com.ubs.db.tablesync.service.TimedDataManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builds synchronizer for each table pair declared in registry. Settings other than table structure and interval are
+ * shared by all table pairs.
+ */
+@Configuration
+@EnableConfigurationProperties(TableSyncProperties.class)
+public class TableSyncConfiguration {
+
+    @Autowired
+    private TableSyncProperties properties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HashStoreFactory hashStoreFactory;
+
+    @Autowired
+    private ConflictHandler conflictHandler;
+
+    @Autowired
+    private ExecutorService syncExecutor;
+
+    @Autowired
+    private ExecutorService syncStageExecutor;
+
+    @Autowired
+    private Scheduler syncIoScheduler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MirrorDatabase mirrorDatabase;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //migrations create change log tables, which have to exist before change log triggers are set up
+    @Autowired(required = false)
+    private FlywayMigrationInitializer flywayInitializer;
+
+    @Value("${tableSync.scheduledJob.fixedRate.inMillis:5000}")
+    private long defaultIntervalMillis;
+
+    @Value("${tableSync.pageSize:1000}")
+    private int pageSize;
+
+    @Value("${tableSync.batchSize:500}")
+    private int batchSize;
+
+    @Value("${tableSync.rangeDiff.fanout:16}")
+    private int rangeDiffFanout;
+
+    @Value("${tableSync.rangeDiff.leafSize:1000}")
+    private int rangeDiffLeafSize;
+
+    @Value("${tableSync.hashPushdown:false}")
+    private boolean hashPushdown;
+
+    @Value("${tableSync.hash.algorithm:XXHASH64}")
+    private HashAlgorithm hashAlgorithm;
+
+    @Value("${tableSync.hash.migrateLegacy:false}")
+    private boolean migrateLegacyHashes;
+
+    @Value("${tableSync.parallel.threads:1}")
+    private int parallelism;
+
+    @Value("${tableSync.parallel.partitions:16}")
+    private int partitions;
+
+    @Value("${tableSync.parallel.sampleSize:10000}")
+    private int partitionSampleSize;
+
+    @Value("${tableSync.changeLog.batchSize:1000}")
+    private int changeLogBatchSize;
+
+    @Value("${tableSync.changeLog.fullScanIntervalMillis:3600000}")
+    private long fullScanIntervalMillis;
+
+    @Value("${tableSync.changeLog.idReconcileIntervalMillis:60000}")
+    private long idReconcileIntervalMillis;
+
+    @Value("${tableSync.fingerprintSkip:true}")
+    private boolean fingerprintSkip;
+
+    @Value("${tableSync.quarantine.maxAttempts:3}")
+    private int quarantineAttempts;
+
+    @Value("${tableSync.pipeline.depth:4}")
+    private int pipelineDepth;
+
+    @Value("${tableSync.pipeline.chunkSize:256}")
+    private int pipelineChunkSize;
+
+    @Value("${tableSync.journal.path:}")
+    private String journalPath;
+
+    @Value("${tableSync.journal.bufferBytes:65536}")
+    private int journalBufferBytes;
+
+    @Value("${tableSync.journal.buffers:8}")
+    private int journalBuffers;
+
+    @Value("${tableSync.journal.maxFileBytes:67108864}")
+    private long journalMaxFileBytes;
+
+    @Bean
+    public TableSyncRegistry tableSyncRegistry() throws IOException {
+        List<TableSynchronizer> synchronizers = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (TableSyncProperties.Table tableProperties : properties.getTables()) {
+            if (!names.add(tableProperties.getName())) {
+                throw new IllegalStateException("Table pair is declared twice: " + tableProperties.getName());
+            }
+            synchronizers.add(synchronizer(tableProperties));
+        }
+        return new TableSyncRegistry(synchronizers);
+    }
+
+    private TableSynchronizer synchronizer(TableSyncProperties.Table tableProperties) throws IOException {
+        String versionColumn = tableProperties.getVersionColumn();
+        if (tableProperties.isChangeLog() && versionColumn != null) {
+            throw new IllegalStateException("Table pair " + tableProperties.getName()
+                    + " can use either change log or version column, not both");
+        }
+        TableDefinition table = new TableDefinition(tableProperties.getName(), tableProperties.getMainTable(),
+                tableProperties.getMirrorTable(), tableProperties.getKeyColumn(), tableProperties.getHashedColumns());
+
+        TableSynchronizer synchronizer = new TableSynchronizer();
+        synchronizer.setTable(table);
+        synchronizer.setIntervalMillis(tableProperties.getIntervalMillis() != null
+                ? tableProperties.getIntervalMillis() : defaultIntervalMillis);
+        TableRepository mainRepository = new TableRepository(jdbcTemplate, table.getMainTable(), table, pageSize,
+                batchSize, hashAlgorithm, versionColumn);
+        TableRepository mirrorRepository = new TableRepository(mirrorDatabase.getJdbcTemplate(),
+                table.getMirrorTable(), table, pageSize, batchSize, hashAlgorithm, versionColumn);
+        //change log is filled by triggers only for table pairs, which read it
+        mainRepository.setUpChangeLogTrigger(tableProperties.isChangeLog());
+        mirrorRepository.setUpChangeLogTrigger(tableProperties.isChangeLog());
+        DataManager<Long, Row> dataManager = new TimedDataManager<>(new TableDataManager(table.getName(),
+                mainRepository, mirrorRepository), meterRegistry, table.getName());
+        synchronizer.setDataManager(dataManager);
+        synchronizer.setReactiveDataManager(new JdbcReactiveDataManager<>(dataManager, syncIoScheduler));
+        synchronizer.setReactiveScheduler(syncIoScheduler);
+        synchronizer.setHashService(new RowHashService(table, hashAlgorithm));
+        synchronizer.setLegacyHashService(new LegacyRowHashService(table));
+        synchronizer.setMigrateLegacyHashes(migrateLegacyHashes);
+        synchronizer.setConflictHandler(conflictHandler);
+        HashStore hashStore = hashStoreFactory.create(table.getName());
+        synchronizer.setHashStore(hashStore);
+        SyncSettings settings = new SyncSettings();
+        settings.setBatchSize(batchSize);
+        settings.setRangeDiffFanout(rangeDiffFanout);
+        settings.setRangeDiffLeafSize(rangeDiffLeafSize);
+        settings.setHashPushdown(hashPushdown);
+        settings.setParallelism(parallelism);
+        settings.setPartitions(partitions);
+        settings.setPartitionSampleSize(partitionSampleSize);
+        settings.setChangeLog(tableProperties.isChangeLog() || versionColumn != null);
+        settings.setChangeLogBatchSize(changeLogBatchSize);
+        settings.setFullScanIntervalMillis(fullScanIntervalMillis);
+        settings.setIdReconcileIntervalMillis(versionColumn != null ? idReconcileIntervalMillis : 0);
+        settings.setQuarantineAttempts(quarantineAttempts);
+        settings.setFingerprintSkip(fingerprintSkip);
+        settings.setPipelineDepth(pipelineDepth);
+        settings.setPipelineChunkSize(pipelineChunkSize);
+        synchronizer.setSettings(settings);
+        synchronizer.setMetrics(new MicrometerSyncMetrics(meterRegistry, table.getName(), hashStore));
+        synchronizer.setSyncExecutor(syncExecutor);
+        synchronizer.setTransactionManager(transactionManager);
+        if (mirrorDatabase.isSeparate()) {
+            synchronizer.setMirrorTransactionManager(mirrorDatabase.getTransactionManager());
+        }
+        synchronizer.setPipelineExecutor(syncStageExecutor);
+        if (!journalPath.isEmpty()) {
+            synchronizer.setJournal(new BinarySyncJournal(Paths.get(journalPath, table.getName()),
+                    journalBufferBytes, journalBuffers, journalMaxFileBytes));
+        }
+        return synchronizer;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ubs.db.tablesync.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of synchronized table pairs, declared under {@code tableSync.tables}.
+ */
+@ConfigurationProperties(prefix = "table-sync")
+public class TableSyncProperties {
+
+    private List<Table> tables = new ArrayList<>();
+
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    public void setTables(List<Table> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Synchronized table pair.
+     */
+    public static class Table {
+
+        private String name;
+
+        private String mainTable;
+
+        private String mirrorTable;
+
+        private String keyColumn = "id";
+
+        private List<String> hashedColumns = new ArrayList<>();
+
+        private Long intervalMillis;
+
+        private boolean changeLog;
+
+        private String versionColumn;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getMainTable() {
+            return mainTable;
+        }
+
+        public void setMainTable(String mainTable) {
+            this.mainTable = mainTable;
+        }
+
+        public String getMirrorTable() {
+            return mirrorTable;
+        }
+
+        public void setMirrorTable(String mirrorTable) {
+            this.mirrorTable = mirrorTable;
+        }
+
+        public String getKeyColumn() {
+            return keyColumn;
+        }
+
+        public void setKeyColumn(String keyColumn) {
+            this.keyColumn = keyColumn;
+        }
+
+        public List<String> getHashedColumns() {
+            return hashedColumns;
+        }
+
+        public void setHashedColumns(List<String> hashedColumns) {
+            this.hashedColumns = hashedColumns;
+        }
+
+        /**
+         * @return delay between synchronizations of the table pair, null to use default one
+         */
+        public Long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public void setIntervalMillis(Long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+        }
+
+        /**
+         * @return whether both tables have change log tables filled by triggers
+         */
+        public boolean isChangeLog() {
+            return changeLog;
+        }
+
+        public void setChangeLog(boolean changeLog) {
+            this.changeLog = changeLog;
+        }
+
+        /**
+         * @return column of both tables with version increased by each insert and update, null if there is none
+         */
+        public String getVersionColumn() {
+            return versionColumn;
+        }
+
+        public void setVersionColumn(String versionColumn) {
+            this.versionColumn = versionColumn;
+        }
+    }
+}
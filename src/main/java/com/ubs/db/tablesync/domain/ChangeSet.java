@@ -0,0 +1,490 @@
+package com.ubs.db.tablesync.domain;
+
+import com.ubs.db.tablesync.domain.SyncMetrics.Mutation;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+import com.ubs.db.tablesync.service.DataManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Mutations of both sources collected during synchronization, which are applied with bulk DataManager calls.
+ * Each flush is committed in its own transaction and stored hashes are changed only after it is committed, so hash
+ * state follows data written to sources. Rows, which were not loaded during comparison, are loaded by ID from the
+ * source they are copied from right before mutations are applied. Rows, which vanished from the source meanwhile, keep
+ * their stored hashes, so they are compared again by the next synchronization.
+ * <p>
+ * If a flush fails, its mutations are retried one row per transaction. Rows, which still fail, keep their stored
+ * hashes, so they are compared again by the next synchronization, and are reported to quarantine. Mutations
+ * committed to mirror only, as main commit failed after mirror one, are not retried, as mirror ones would be applied
+ * twice. Their rows are compared again by the next synchronization without being reported to quarantine.
+ * <p>
+ * With a writer, batches filled during comparison are written on writer thread, while the next batch is collected.
+ * At most one batch is written at a time, collecting waits for it before handing over the next one. Explicit
+ * {@link #flush()} waits until all collected mutations are written.
+ * <p>
+ * A change set created for a plan collects nothing and writes nothing, decisions are recorded to the plan by
+ * synchronizer instead.
+ *
+ * @param <T> row type
+ */
+class ChangeSet<T> {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final DataManager<Long, T> dataManager;
+
+    private final HashStore hashStore;
+
+    private final Function<T, Long> idOf;
+
+    private final Comparator<T> order;
+
+    private final int batchSize;
+
+    private final TransactionOperations transactionOperations;
+
+    private final Quarantine quarantine;
+
+    private final SyncPlan plan;
+
+    private final ExecutorService writer;
+
+    private Batch<T> batch = new Batch<>();
+
+    private Future<?> writing;
+
+    private int mutations;
+
+    private long flushNanos;
+
+    //written by writer thread, read once writing is awaited
+    private int applied;
+
+    private int failed;
+
+    private final int[][] appliedByKind = new int[Side.values().length][Mutation.values().length];
+
+    private long loadNanos;
+
+    private long applyNanos;
+
+    /**
+     * @param dataManager           data manager to apply mutations with
+     * @param hashStore             stored hashes to update after mutations are committed
+     * @param idOf                  row ID, mutations are applied in order of it
+     * @param batchSize             number of mutations after which change set is flushed, not positive to flush only
+     *                              on demand
+     * @param transactionOperations runs each flush and each retried row in its own transaction
+     * @param quarantine            counts failed rows
+     * @param plan                  plan to compute instead of applying mutations, null to apply them
+     * @param writer                writes full batches asynchronously, null to write them on collecting thread
+     */
+    ChangeSet(DataManager<Long, T> dataManager, HashStore hashStore, Function<T, Long> idOf, int batchSize,
+              TransactionOperations transactionOperations, Quarantine quarantine, SyncPlan plan,
+              ExecutorService writer) {
+        this.dataManager = dataManager;
+        this.hashStore = hashStore;
+        this.idOf = idOf;
+        this.order = Comparator.comparing(idOf);
+        this.batchSize = batchSize;
+        this.transactionOperations = transactionOperations;
+        this.quarantine = quarantine;
+        this.plan = plan;
+        this.writer = writer;
+    }
+
+    void addMain(HashedRow<T> mirrorRow) {
+        mutate(batch.mainAdds, batch.mainAddIds, mirrorRow);
+    }
+
+    void updateMain(HashedRow<T> mirrorRow) {
+        mutate(batch.mainUpdates, batch.mainUpdateIds, mirrorRow);
+    }
+
+    void removeMain(HashedRow<T> mainRow) {
+        mutate(batch.mainRemoves, batch.mainRemoveIds, mainRow);
+    }
+
+    void addMirror(HashedRow<T> mainRow) {
+        mutate(batch.mirrorAdds, batch.mirrorAddIds, mainRow);
+    }
+
+    void updateMirror(HashedRow<T> mainRow) {
+        mutate(batch.mirrorUpdates, batch.mirrorUpdateIds, mainRow);
+    }
+
+    void removeMirror(HashedRow<T> mirrorRow) {
+        mutate(batch.mirrorRemoves, batch.mirrorRemoveIds, mirrorRow);
+    }
+
+    void putHash(long id, long hash) {
+        if (plan == null) {
+            batch.changeHash(id, hash, false);
+        }
+    }
+
+    void removeHash(long id) {
+        if (plan == null) {
+            batch.changeHash(id, 0, true);
+        }
+    }
+
+    /**
+     * Applies collected mutations to both sources in one transaction, then applies collected hash changes and
+     * flushes hash store. If the transaction fails, mutations are retried row by row and hash changes of failed rows
+     * are dropped. Returns when all mutations collected so far are written.
+     */
+    void flush() {
+        if (plan != null) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            handOver();
+            await();
+        } finally {
+            flushNanos += System.nanoTime() - started;
+        }
+    }
+
+    /**
+     * Waits until batch handed over to writer is written, rethrowing its failure.
+     */
+    void await() {
+        Future<?> pending = writing;
+        if (pending == null) {
+            return;
+        }
+        writing = null;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Writing of changes is interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Writing of changes failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return plan computed by this change set, null if mutations are applied
+     */
+    SyncPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return number of row mutations applied by all flushes
+     */
+    int getApplied() {
+        return applied;
+    }
+
+    /**
+     * @return number of row mutations of given kind applied to given source by all flushes
+     */
+    int getApplied(Side side, Mutation mutation) {
+        return appliedByKind[side.ordinal()][mutation.ordinal()];
+    }
+
+    /**
+     * @return number of row mutations, which failed even when retried alone
+     */
+    int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return time spent loading rows by ID before mutations are applied
+     */
+    long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return time spent applying mutations and hash changes, including retries
+     */
+    long getApplyNanos() {
+        return applyNanos;
+    }
+
+    /**
+     * @return number of mutations collected since the last flush
+     */
+    int getPending() {
+        return mutations;
+    }
+
+    /**
+     * @return time collecting thread spent in flushes, either writing batches or waiting for writer
+     */
+    long getFlushNanos() {
+        return flushNanos;
+    }
+
+    /**
+     * Hands collected batch over to writer, once the previous one is written, or writes it on collecting thread.
+     */
+    private void handOver() {
+        await();
+        Batch<T> full = batch;
+        batch = new Batch<>();
+        mutations = 0;
+        if (writer == null) {
+            write(full);
+        } else {
+            writing = writer.submit(() -> write(full));
+        }
+    }
+
+    private void write(Batch<T> batch) {
+        long loadStarted = System.nanoTime();
+        Set<Long> vanishedIds = loadRows(batch);
+        long applyStarted = System.nanoTime();
+        loadNanos += applyStarted - loadStarted;
+        int rows = batch.rows();
+
+        Set<Long> failedIds = Collections.emptySet();
+        if (rows > 0) {
+            try {
+                transactionOperations.execute(status -> {
+                    apply(batch);
+                    return null;
+                });
+                applied += rows;
+                countApplied(batch);
+                if (quarantine.hasFailures()) {
+                    batch.forEachRow(row -> quarantine.succeeded(idOf.apply(row)));
+                }
+            } catch (MirrorOnlyCommitException e) {
+                logger.warn("Batch of {} mutations is committed to mirror only, it is compared again by next "
+                        + "synchronization: {}", rows, e.getCause().toString());
+                Set<Long> mirrorOnlyIds = new HashSet<>();
+                batch.forEachRow(row -> mirrorOnlyIds.add(idOf.apply(row)));
+                mirrorOnlyIds.forEach(quarantine::retry);
+                failedIds = mirrorOnlyIds;
+                failed += failedIds.size();
+            } catch (RuntimeException e) {
+                logger.warn("Batch of {} mutations failed, retrying them one by one: {}", rows, e.toString());
+                failedIds = applyOneByOne(batch);
+                applied += rows - failedIds.size();
+                failed += failedIds.size();
+            }
+        }
+
+        for (int i = 0; i < batch.hashChanges; i++) {
+            if (failedIds.contains(batch.hashIds[i]) || vanishedIds.contains(batch.hashIds[i])) {
+                continue;
+            }
+            if (batch.hashRemoves[i]) {
+                hashStore.remove(batch.hashIds[i]);
+            } else {
+                hashStore.put(batch.hashIds[i], batch.hashes[i]);
+            }
+        }
+        hashStore.flush();
+        applyNanos += System.nanoTime() - applyStarted;
+    }
+
+    private void apply(Batch<T> batch) {
+        if (!batch.mainRemoves.isEmpty()) {
+            dataManager.removeMainRows(sorted(batch.mainRemoves));
+        }
+        if (!batch.mirrorRemoves.isEmpty()) {
+            dataManager.removeMirrorRows(sorted(batch.mirrorRemoves));
+        }
+        if (!batch.mainUpdates.isEmpty()) {
+            dataManager.updateMainRows(sorted(batch.mainUpdates));
+        }
+        if (!batch.mirrorUpdates.isEmpty()) {
+            dataManager.updateMirrorRows(sorted(batch.mirrorUpdates));
+        }
+        if (!batch.mainAdds.isEmpty()) {
+            dataManager.addMainRows(sorted(batch.mainAdds));
+        }
+        if (!batch.mirrorAdds.isEmpty()) {
+            dataManager.addMirrorRows(sorted(batch.mirrorAdds));
+        }
+    }
+
+    /**
+     * Applies each mutation in its own transaction, in the same order as the batch.
+     *
+     * @return IDs of rows, which failed
+     */
+    private Set<Long> applyOneByOne(Batch<T> batch) {
+        Set<Long> failedIds = new HashSet<>();
+        applyEach(batch.mainRemoves, dataManager::removeMainRows, Side.MAIN, Mutation.REMOVE, failedIds);
+        applyEach(batch.mirrorRemoves, dataManager::removeMirrorRows, Side.MIRROR, Mutation.REMOVE, failedIds);
+        applyEach(batch.mainUpdates, dataManager::updateMainRows, Side.MAIN, Mutation.UPDATE, failedIds);
+        applyEach(batch.mirrorUpdates, dataManager::updateMirrorRows, Side.MIRROR, Mutation.UPDATE, failedIds);
+        applyEach(batch.mainAdds, dataManager::addMainRows, Side.MAIN, Mutation.ADD, failedIds);
+        applyEach(batch.mirrorAdds, dataManager::addMirrorRows, Side.MIRROR, Mutation.ADD, failedIds);
+        return failedIds;
+    }
+
+    private void applyEach(List<T> rows, Consumer<Collection<T>> mutation, Side side, Mutation kind,
+                           Set<Long> failedIds) {
+        for (T row : rows) {
+            long id = idOf.apply(row);
+            try {
+                transactionOperations.execute(status -> {
+                    mutation.accept(Collections.singletonList(row));
+                    return null;
+                });
+                quarantine.succeeded(id);
+                appliedByKind[side.ordinal()][kind.ordinal()]++;
+            } catch (MirrorOnlyCommitException e) {
+                logger.warn("! Row with ID: {} is committed to mirror only, it is compared again by next "
+                        + "synchronization", id, e);
+                failedIds.add(id);
+                quarantine.retry(id);
+            } catch (RuntimeException e) {
+                logger.warn("! Row with ID: {} cannot be written, it is retried by next synchronization", id, e);
+                failedIds.add(id);
+                quarantine.failed(id);
+            }
+        }
+    }
+
+    private void countApplied(Batch<T> batch) {
+        appliedByKind[Side.MAIN.ordinal()][Mutation.REMOVE.ordinal()] += batch.mainRemoves.size();
+        appliedByKind[Side.MIRROR.ordinal()][Mutation.REMOVE.ordinal()] += batch.mirrorRemoves.size();
+        appliedByKind[Side.MAIN.ordinal()][Mutation.UPDATE.ordinal()] += batch.mainUpdates.size();
+        appliedByKind[Side.MIRROR.ordinal()][Mutation.UPDATE.ordinal()] += batch.mirrorUpdates.size();
+        appliedByKind[Side.MAIN.ordinal()][Mutation.ADD.ordinal()] += batch.mainAdds.size();
+        appliedByKind[Side.MIRROR.ordinal()][Mutation.ADD.ordinal()] += batch.mirrorAdds.size();
+    }
+
+    /**
+     * Loads rows, which were not loaded during comparison, by ID.
+     *
+     * @return IDs of rows, which vanished from their source since comparison, their stored hashes are kept
+     */
+    private Set<Long> loadRows(Batch<T> batch) {
+        Set<Long> vanishedIds = new HashSet<>();
+        loadRows(batch.mainRemoveIds, dataManager::mainRows, batch.mainRemoves, vanishedIds);
+        loadRows(batch.mirrorRemoveIds, dataManager::mirrorRows, batch.mirrorRemoves, vanishedIds);
+        loadRows(batch.mainUpdateIds, dataManager::mirrorRows, batch.mainUpdates, vanishedIds);
+        loadRows(batch.mirrorUpdateIds, dataManager::mainRows, batch.mirrorUpdates, vanishedIds);
+        loadRows(batch.mainAddIds, dataManager::mirrorRows, batch.mainAdds, vanishedIds);
+        loadRows(batch.mirrorAddIds, dataManager::mainRows, batch.mirrorAdds, vanishedIds);
+        return vanishedIds;
+    }
+
+    private void loadRows(List<Long> ids, Function<Collection<Long>, List<T>> source, List<T> rows,
+                          Set<Long> vanishedIds) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<T> loaded = source.apply(ids);
+        if (loaded.size() < ids.size()) {
+            Set<Long> missing = new HashSet<>(ids);
+            loaded.forEach(row -> missing.remove(idOf.apply(row)));
+            logger.debug("{} rows vanished before they were written, they are compared again by next "
+                    + "synchronization", missing.size());
+            vanishedIds.addAll(missing);
+        }
+        rows.addAll(loaded);
+    }
+
+    private void mutate(List<T> rows, List<Long> ids, HashedRow<T> row) {
+        if (plan != null) {
+            return;
+        }
+        if (row.getRow() != null) {
+            rows.add(row.getRow());
+        } else {
+            ids.add(row.getId());
+        }
+        mutations++;
+        if (batchSize > 0 && mutations >= batchSize) {
+            long started = System.nanoTime();
+            try {
+                handOver();
+            } finally {
+                flushNanos += System.nanoTime() - started;
+            }
+        }
+    }
+
+    private List<T> sorted(List<T> rows) {
+        rows.sort(order);
+        return rows;
+    }
+
+    /**
+     * Mutations and hash changes collected between two flushes.
+     */
+    private static class Batch<T> {
+
+        private final List<T> mainAdds = new ArrayList<>();
+        private final List<T> mainUpdates = new ArrayList<>();
+        private final List<T> mainRemoves = new ArrayList<>();
+        private final List<T> mirrorAdds = new ArrayList<>();
+        private final List<T> mirrorUpdates = new ArrayList<>();
+        private final List<T> mirrorRemoves = new ArrayList<>();
+
+        private final List<Long> mainAddIds = new ArrayList<>();
+        private final List<Long> mainUpdateIds = new ArrayList<>();
+        private final List<Long> mainRemoveIds = new ArrayList<>();
+        private final List<Long> mirrorAddIds = new ArrayList<>();
+        private final List<Long> mirrorUpdateIds = new ArrayList<>();
+        private final List<Long> mirrorRemoveIds = new ArrayList<>();
+
+        private long[] hashIds = new long[16];
+        private long[] hashes = new long[16];
+        private boolean[] hashRemoves = new boolean[16];
+        private int hashChanges;
+
+        private void changeHash(long id, long hash, boolean remove) {
+            if (hashChanges == hashIds.length) {
+                hashIds = Arrays.copyOf(hashIds, hashChanges * 2);
+                hashes = Arrays.copyOf(hashes, hashChanges * 2);
+                hashRemoves = Arrays.copyOf(hashRemoves, hashChanges * 2);
+            }
+            hashIds[hashChanges] = id;
+            hashes[hashChanges] = hash;
+            hashRemoves[hashChanges] = remove;
+            hashChanges++;
+        }
+
+        /**
+         * @return number of loaded rows to be written
+         */
+        private int rows() {
+            return mainRemoves.size() + mirrorRemoves.size() + mainUpdates.size() + mirrorUpdates.size()
+                    + mainAdds.size() + mirrorAdds.size();
+        }
+
+        private void forEachRow(Consumer<T> consumer) {
+            mainRemoves.forEach(consumer);
+            mirrorRemoves.forEach(consumer);
+            mainUpdates.forEach(consumer);
+            mirrorUpdates.forEach(consumer);
+            mainAdds.forEach(consumer);
+            mirrorAdds.forEach(consumer);
+        }
+    }
+}
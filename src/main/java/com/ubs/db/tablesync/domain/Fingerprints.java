@@ -0,0 +1,51 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Conversion of String hashes to 64-bit fingerprints kept in HashStore.
+ */
+public final class Fingerprints {
+
+    private static final int HEX_DIGEST_LENGTH = 32;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Returns 64-bit fingerprint of hash. 128-bit hex digests (e.g. MD5) are folded to their first 64 bits, any other
+     * string is hashed with FNV-1a.
+     *
+     * @param hash hash string
+     * @return hash fingerprint
+     */
+    public static long of(String hash) {
+        if (isHexDigest(hash)) {
+            long fingerprint = 0;
+            for (int i = 0; i < HEX_DIGEST_LENGTH / 2; i++) {
+                fingerprint = (fingerprint << 4) | Character.digit(hash.charAt(i), 16);
+            }
+            return fingerprint;
+        }
+        long fingerprint = FNV_OFFSET_BASIS;
+        for (int i = 0; i < hash.length(); i++) {
+            fingerprint ^= hash.charAt(i);
+            fingerprint *= FNV_PRIME;
+        }
+        return fingerprint;
+    }
+
+    private static boolean isHexDigest(String hash) {
+        if (hash.length() != HEX_DIGEST_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_DIGEST_LENGTH; i++) {
+            if (Character.digit(hash.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,201 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Non-cryptographic 64-bit hash functions, which hash {@link HashInput} in place without allocations.
+ */
+public enum HashAlgorithm {
+
+    /**
+     * xxHash64 with zero seed.
+     */
+    XXHASH64 {
+        @Override
+        long hash(byte[] data, int length) {
+            return XxHash64.hash(data, length);
+        }
+    },
+
+    /**
+     * Lower 64 bits of MurmurHash3 x64 128-bit variant with zero seed.
+     */
+    MURMUR3_128 {
+        @Override
+        long hash(byte[] data, int length) {
+            return Murmur3.hash128Low(data, length);
+        }
+    };
+
+    /**
+     * Returns hash of fields written to input.
+     *
+     * @param input row fields
+     * @return 64-bit hash
+     */
+    public long hash(HashInput input) {
+        return hash(input.bytes(), input.length());
+    }
+
+    abstract long hash(byte[] data, int length);
+
+    static long getLong(byte[] data, int offset) {
+        return (data[offset] & 0xffL)
+                | (data[offset + 1] & 0xffL) << 8
+                | (data[offset + 2] & 0xffL) << 16
+                | (data[offset + 3] & 0xffL) << 24
+                | (data[offset + 4] & 0xffL) << 32
+                | (data[offset + 5] & 0xffL) << 40
+                | (data[offset + 6] & 0xffL) << 48
+                | (data[offset + 7] & 0xffL) << 56;
+    }
+
+    static long getUnsignedInt(byte[] data, int offset) {
+        return (data[offset] & 0xffL)
+                | (data[offset + 1] & 0xffL) << 8
+                | (data[offset + 2] & 0xffL) << 16
+                | (data[offset + 3] & 0xffL) << 24;
+    }
+
+    private static final class XxHash64 {
+
+        private static final long PRIME1 = 0x9E3779B185EBCA87L;
+        private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long PRIME3 = 0x165667B19E3779F9L;
+        private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+        private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+        static long hash(byte[] data, int length) {
+            int offset = 0;
+            long h;
+            if (length >= 32) {
+                long v1 = PRIME1 + PRIME2;
+                long v2 = PRIME2;
+                long v3 = 0;
+                long v4 = -PRIME1;
+                int limit = length - 32;
+                do {
+                    v1 = round(v1, getLong(data, offset));
+                    v2 = round(v2, getLong(data, offset + 8));
+                    v3 = round(v3, getLong(data, offset + 16));
+                    v4 = round(v4, getLong(data, offset + 24));
+                    offset += 32;
+                } while (offset <= limit);
+                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                h = mergeRound(h, v1);
+                h = mergeRound(h, v2);
+                h = mergeRound(h, v3);
+                h = mergeRound(h, v4);
+            } else {
+                h = PRIME5;
+            }
+            h += length;
+
+            while (offset + 8 <= length) {
+                h ^= round(0, getLong(data, offset));
+                h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+                offset += 8;
+            }
+            if (offset + 4 <= length) {
+                h ^= getUnsignedInt(data, offset) * PRIME1;
+                h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+                offset += 4;
+            }
+            while (offset < length) {
+                h ^= (data[offset] & 0xffL) * PRIME5;
+                h = Long.rotateLeft(h, 11) * PRIME1;
+                offset++;
+            }
+
+            h ^= h >>> 33;
+            h *= PRIME2;
+            h ^= h >>> 29;
+            h *= PRIME3;
+            h ^= h >>> 32;
+            return h;
+        }
+
+        private static long round(long acc, long input) {
+            acc += input * PRIME2;
+            acc = Long.rotateLeft(acc, 31);
+            return acc * PRIME1;
+        }
+
+        private static long mergeRound(long acc, long value) {
+            acc ^= round(0, value);
+            return acc * PRIME1 + PRIME4;
+        }
+    }
+
+    private static final class Murmur3 {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        static long hash128Low(byte[] data, int length) {
+            long h1 = 0;
+            long h2 = 0;
+            int offset = 0;
+            int blocksEnd = length & ~15;
+
+            for (; offset < blocksEnd; offset += 16) {
+                long k1 = getLong(data, offset);
+                long k2 = getLong(data, offset + 8);
+
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+
+            long k1 = 0;
+            long k2 = 0;
+            int tail = length & 15;
+            for (int i = tail - 1; i >= 8; i--) {
+                k2 ^= (data[offset + i] & 0xffL) << ((i - 8) * 8);
+            }
+            for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+                k1 ^= (data[offset + i] & 0xffL) << (i * 8);
+            }
+            if (tail > 8) {
+                h2 ^= mixK2(k2);
+            }
+            if (tail > 0) {
+                h1 ^= mixK1(k1);
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            return h1;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
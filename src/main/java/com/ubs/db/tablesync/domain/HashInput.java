@@ -0,0 +1,124 @@
+package com.ubs.db.tablesync.domain;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer, which row fields are written to before hashing. Fields are written in fixed-size binary form without
+ * intermediate strings or encoders. Strings are written as length and UTF-16 code units, null values have own markers,
+ * so different rows can not produce the same input. Not thread-safe.
+ */
+public final class HashInput {
+
+    private static final int NULL_LENGTH = -1;
+
+    private byte[] bytes;
+
+    private int length;
+
+    public HashInput() {
+        this(256);
+    }
+
+    public HashInput(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * Discards written fields, so buffer can be reused for next row.
+     *
+     * @return this buffer
+     */
+    public HashInput reset() {
+        length = 0;
+        return this;
+    }
+
+    public HashInput putLong(long value) {
+        ensureCapacity(Long.BYTES);
+        for (int i = 0; i < Long.BYTES; i++) {
+            bytes[length++] = (byte) (value >>> (i * 8));
+        }
+        return this;
+    }
+
+    public HashInput putInt(int value) {
+        ensureCapacity(Integer.BYTES);
+        for (int i = 0; i < Integer.BYTES; i++) {
+            bytes[length++] = (byte) (value >>> (i * 8));
+        }
+        return this;
+    }
+
+    public HashInput putLong(Long value) {
+        if (value == null) {
+            return putInt(NULL_LENGTH);
+        }
+        return putInt(Long.BYTES).putLong(value.longValue());
+    }
+
+    public HashInput putString(CharSequence value) {
+        if (value == null) {
+            return putInt(NULL_LENGTH);
+        }
+        int chars = value.length();
+        putInt(chars);
+        ensureCapacity(chars * 2);
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            bytes[length++] = (byte) c;
+            bytes[length++] = (byte) (c >>> 8);
+        }
+        return this;
+    }
+
+    public HashInput putBytes(byte[] value) {
+        if (value == null) {
+            return putInt(NULL_LENGTH);
+        }
+        putInt(value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, bytes, length, value.length);
+        length += value.length;
+        return this;
+    }
+
+    /**
+     * Writes a column value of any type. Integral numbers, strings and byte arrays are written in binary form, other
+     * values as their string representation.
+     *
+     * @param value column value or null
+     * @return this buffer
+     */
+    public HashInput putValue(Object value) {
+        if (value == null) {
+            return putInt(NULL_LENGTH);
+        }
+        if (value instanceof Long) {
+            return putLong((Long) value);
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return putInt(Integer.BYTES).putInt(((Number) value).intValue());
+        }
+        if (value instanceof CharSequence) {
+            return putString((CharSequence) value);
+        }
+        if (value instanceof byte[]) {
+            return putBytes((byte[]) value);
+        }
+        return putString(value.toString());
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
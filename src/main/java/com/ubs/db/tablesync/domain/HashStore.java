@@ -0,0 +1,52 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Storage of row hashes, which were stored after last successful synchronization of each row. Keys are row IDs,
+ * values are 64-bit hash fingerprints.
+ */
+public interface HashStore extends AutoCloseable {
+
+    /**
+     * Receives stored entries one by one.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+
+        void accept(long id, long hash);
+    }
+
+    boolean contains(long id);
+
+    /**
+     * Checks whether stored hash of a row is equal to given one.
+     *
+     * @param id   row ID
+     * @param hash hash fingerprint
+     * @return true if hash is stored for this row and is equal to given one
+     */
+    boolean matches(long id, long hash);
+
+    /**
+     * @param id row ID
+     * @return stored hash of a row, 0 if no hash is stored
+     */
+    long get(long id);
+
+    void put(long id, long hash);
+
+    void remove(long id);
+
+    int size();
+
+    void forEach(EntryConsumer consumer);
+
+    /**
+     * Makes changes applied so far durable. Called after each batch of mutations is applied to sources.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
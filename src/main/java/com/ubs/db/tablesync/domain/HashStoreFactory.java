@@ -0,0 +1,17 @@
+package com.ubs.db.tablesync.domain;
+
+import java.io.IOException;
+
+/**
+ * Creates HashStore of a synchronized table pair.
+ */
+@FunctionalInterface
+public interface HashStoreFactory {
+
+    /**
+     * @param name name of table pair, unique within registry
+     * @return a new or restored hash store
+     * @throws IOException if persisted hash store cannot be opened
+     */
+    HashStore create(String name) throws IOException;
+}
@@ -0,0 +1,42 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Row ID with its hash fingerprint, compared during synchronization. Row itself is present only if it was loaded to
+ * calculate the hash. With hash pushdown it is absent and is loaded by ID only if it has to be written.
+ *
+ * @param <T> row type
+ */
+class HashedRow<T> {
+
+    private final long id;
+
+    private final long hash;
+
+    private final T row;
+
+    HashedRow(long id, long hash, T row) {
+        this.id = id;
+        this.hash = hash;
+        this.row = row;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return row or null, if it is not loaded
+     */
+    T getRow() {
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return row != null ? row.toString() : "Row [id=" + id + "]";
+    }
+}
@@ -0,0 +1,293 @@
+package com.ubs.db.tablesync.domain;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Immutable set of row IDs compressed into runs of consecutive IDs. Each run is encoded as two variable length
+ * integers: gap since the end of the previous run and run length. Dense ID ranges take a few bytes in total, sparse
+ * IDs take a few bytes each instead of a boxed Long and a list slot.
+ * <p>
+ * IDs are iterated in ascending order without boxing, set difference is computed run by run without expanding runs.
+ */
+public final class IdSet {
+
+    private static final IdSet EMPTY = new IdSet(new byte[0], 0, 0);
+
+    private final byte[] encoded;
+
+    private final long size;
+
+    private final int runs;
+
+    private IdSet(byte[] encoded, long size, int runs) {
+        this.encoded = encoded;
+        this.size = size;
+        this.runs = runs;
+    }
+
+    public static IdSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param ids IDs in any order, duplicates are dropped
+     */
+    public static IdSet of(long... ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        Builder builder = new Builder();
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                builder.add(sorted[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return number of IDs
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of runs of consecutive IDs
+     */
+    public int runs() {
+        return runs;
+    }
+
+    /**
+     * @return size of encoded runs
+     */
+    public int sizeInBytes() {
+        return encoded.length;
+    }
+
+    /**
+     * @return IDs in ascending order
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private final RunCursor cursor = new RunCursor();
+            private boolean inRun;
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return inRun || cursor.hasNext();
+            }
+
+            @Override
+            public long nextLong() {
+                if (!inRun) {
+                    if (!cursor.next()) {
+                        throw new NoSuchElementException();
+                    }
+                    inRun = true;
+                    next = cursor.start;
+                }
+                long id = next;
+                if (id == cursor.end) {
+                    inRun = false;
+                } else {
+                    next = id + 1;
+                }
+                return id;
+            }
+        };
+    }
+
+    /**
+     * @return IDs of this set, which are not in the other one
+     */
+    public IdSet minus(IdSet other) {
+        if (isEmpty() || other.isEmpty()) {
+            return this;
+        }
+        Builder result = new Builder();
+        RunCursor these = new RunCursor();
+        RunCursor others = other.new RunCursor();
+        boolean hasOther = others.next();
+        while (these.next()) {
+            long start = these.start;
+            long end = these.end;
+            while (true) {
+                while (hasOther && others.end < start) {
+                    hasOther = others.next();
+                }
+                if (!hasOther || others.start > end) {
+                    result.addRun(start, end);
+                    break;
+                }
+                if (others.start > start) {
+                    result.addRun(start, others.start - 1);
+                }
+                if (others.end >= end) {
+                    break;
+                }
+                start = others.end + 1;
+            }
+        }
+        return result.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdSet)) {
+            return false;
+        }
+        IdSet other = (IdSet) o;
+        return size == other.size && Arrays.equals(encoded, other.encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+
+    @Override
+    public String toString() {
+        return "IdSet{size=" + size + ", runs=" + runs + ", bytes=" + encoded.length + "}";
+    }
+
+    /**
+     * Reads runs one by one, keeping bounds of the current one.
+     */
+    private class RunCursor {
+
+        private int position;
+
+        private int read;
+
+        private long start;
+
+        private long end;
+
+        private boolean hasNext() {
+            return read < runs;
+        }
+
+        private boolean next() {
+            if (read == runs) {
+                return false;
+            }
+            long gap = readVarLong();
+            long length = readVarLong();
+            start = read == 0 ? unzigzag(gap) : end + 1 + gap;
+            end = start + length;
+            read++;
+            return true;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Collects IDs in ascending order into runs.
+     */
+    public static final class Builder {
+
+        private byte[] encoded = new byte[64];
+
+        private int position;
+
+        private long size;
+
+        private int runs;
+
+        private boolean pending;
+
+        private long pendingStart;
+
+        private long pendingEnd;
+
+        private long lastEnd;
+
+        private Builder() {
+        }
+
+        /**
+         * @param id ID greater than all IDs added before
+         */
+        public Builder add(long id) {
+            return addRun(id, id);
+        }
+
+        public IdSet build() {
+            flushRun();
+            return size == 0 ? EMPTY : new IdSet(Arrays.copyOf(encoded, position), size, runs);
+        }
+
+        private Builder addRun(long start, long end) {
+            if (pending && start <= pendingEnd) {
+                throw new IllegalArgumentException("IDs must be added in ascending order, " + start
+                        + " follows " + pendingEnd);
+            }
+            if (pending && start == pendingEnd + 1) {
+                pendingEnd = end;
+            } else {
+                flushRun();
+                pending = true;
+                pendingStart = start;
+                pendingEnd = end;
+            }
+            size += end - start + 1;
+            return this;
+        }
+
+        private void flushRun() {
+            if (!pending) {
+                return;
+            }
+            writeVarLong(runs == 0 ? zigzag(pendingStart) : pendingStart - lastEnd - 1);
+            writeVarLong(pendingEnd - pendingStart);
+            lastEnd = pendingEnd;
+            runs++;
+            pending = false;
+        }
+
+        private void writeVarLong(long value) {
+            if (position + 10 > encoded.length) {
+                encoded = Arrays.copyOf(encoded, encoded.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                encoded[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            encoded[position++] = (byte) value;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Commit of main transaction failed after mirror transaction running inside it was committed, so mutations are
+ * written to mirror only. Retrying them would apply mirror mutations twice, next synchronization compares rows again
+ * instead.
+ */
+class MirrorOnlyCommitException extends RuntimeException {
+
+    MirrorOnlyCommitException(Throwable cause) {
+        super("Main transaction failed after mirror one was committed", cause);
+    }
+}
@@ -0,0 +1,243 @@
+package com.ubs.db.tablesync.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Compact HashStore based on open addressing hash table with linear probing, keyed by primitive long. Each slot takes
+ * 16 bytes (ID and hash fingerprint), no objects are allocated per entry. Table may be kept in heap or in direct
+ * (off-heap) memory. Thread-safe.
+ */
+public class OpenAddressingHashStore implements HashStore {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private static final int SLOT_LONGS = 2;
+
+    private static final int MAX_HEAP_CAPACITY = 1 << 29;
+
+    private static final int MAX_OFF_HEAP_CAPACITY = 1 << 26;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final boolean offHeap;
+
+    private LongBuffer table;
+
+    private int mask;
+
+    private int size;
+
+    private int resizeThreshold;
+
+    //Long.MIN_VALUE is used as empty slot marker, so its entry is kept aside
+    private boolean hasEmptyKey;
+
+    private long emptyKeyHash;
+
+    public OpenAddressingHashStore() {
+        this(1024, false);
+    }
+
+    /**
+     * @param initialCapacity expected number of entries
+     * @param offHeap         keep table in direct memory instead of heap
+     */
+    public OpenAddressingHashStore(int initialCapacity, boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(capacityFor(initialCapacity));
+    }
+
+    @Override
+    public synchronized boolean contains(long id) {
+        if (id == EMPTY) {
+            return hasEmptyKey;
+        }
+        return slotOf(id) >= 0;
+    }
+
+    @Override
+    public synchronized boolean matches(long id, long hash) {
+        if (id == EMPTY) {
+            return hasEmptyKey && emptyKeyHash == hash;
+        }
+        int slot = slotOf(id);
+        return slot >= 0 && table.get(slot * SLOT_LONGS + 1) == hash;
+    }
+
+    @Override
+    public synchronized long get(long id) {
+        if (id == EMPTY) {
+            return hasEmptyKey ? emptyKeyHash : 0;
+        }
+        int slot = slotOf(id);
+        return slot >= 0 ? table.get(slot * SLOT_LONGS + 1) : 0;
+    }
+
+    @Override
+    public synchronized void put(long id, long hash) {
+        if (id == EMPTY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyHash = hash;
+            return;
+        }
+        int slot = index(id);
+        long key;
+        while ((key = table.get(slot * SLOT_LONGS)) != EMPTY) {
+            if (key == id) {
+                table.put(slot * SLOT_LONGS + 1, hash);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.put(slot * SLOT_LONGS, id);
+        table.put(slot * SLOT_LONGS + 1, hash);
+        if (++size > resizeThreshold) {
+            resize();
+        }
+    }
+
+    @Override
+    public synchronized void remove(long id) {
+        if (id == EMPTY) {
+            if (hasEmptyKey) {
+                hasEmptyKey = false;
+                size--;
+            }
+            return;
+        }
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return;
+        }
+        shiftBack(slot);
+        size--;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void forEach(EntryConsumer consumer) {
+        if (hasEmptyKey) {
+            consumer.accept(EMPTY, emptyKeyHash);
+        }
+        for (int slot = 0; slot <= mask; slot++) {
+            long key = table.get(slot * SLOT_LONGS);
+            if (key != EMPTY) {
+                consumer.accept(key, table.get(slot * SLOT_LONGS + 1));
+            }
+        }
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Returns number of slots in table. Each slot takes 16 bytes.
+     *
+     * @return table capacity
+     */
+    public synchronized int capacity() {
+        return mask + 1;
+    }
+
+    private int slotOf(long id) {
+        int slot = index(id);
+        long key;
+        while ((key = table.get(slot * SLOT_LONGS)) != EMPTY) {
+            if (key == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes entry from slot and moves following entries of the same probe chain back, so no tombstones are needed.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long key = table.get(next * SLOT_LONGS);
+            if (key == EMPTY) {
+                break;
+            }
+            int ideal = index(key);
+            boolean staysInPlace = free <= next
+                    ? free < ideal && ideal <= next
+                    : free < ideal || ideal <= next;
+            if (!staysInPlace) {
+                table.put(free * SLOT_LONGS, key);
+                table.put(free * SLOT_LONGS + 1, table.get(next * SLOT_LONGS + 1));
+                free = next;
+            }
+        }
+        table.put(free * SLOT_LONGS, EMPTY);
+    }
+
+    private void resize() {
+        LongBuffer oldTable = table;
+        int oldCapacity = mask + 1;
+        if (oldCapacity >= maxCapacity()) {
+            throw new IllegalStateException("Hash store capacity limit is reached: " + oldCapacity);
+        }
+        allocate(oldCapacity << 1);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long key = oldTable.get(slot * SLOT_LONGS);
+            if (key != EMPTY) {
+                int newSlot = index(key);
+                while (table.get(newSlot * SLOT_LONGS) != EMPTY) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                table.put(newSlot * SLOT_LONGS, key);
+                table.put(newSlot * SLOT_LONGS + 1, oldTable.get(slot * SLOT_LONGS + 1));
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        if (offHeap) {
+            table = ByteBuffer.allocateDirect(capacity * SLOT_LONGS * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        } else {
+            table = LongBuffer.wrap(new long[capacity * SLOT_LONGS]);
+        }
+        for (int slot = 0; slot < capacity; slot++) {
+            table.put(slot * SLOT_LONGS, EMPTY);
+        }
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int capacityFor(int expectedSize) {
+        long capacity = Long.highestOneBit(Math.max(16, (long) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return (int) Math.min(capacity, maxCapacity());
+    }
+
+    private int maxCapacity() {
+        return offHeap ? MAX_OFF_HEAP_CAPACITY : MAX_HEAP_CAPACITY;
+    }
+
+    private int index(long id) {
+        //murmur3 finalizer spreads sequential IDs over the table
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
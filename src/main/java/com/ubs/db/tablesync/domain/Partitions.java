@@ -0,0 +1,43 @@
+package com.ubs.db.tablesync.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits ID space into contiguous ranges with similar number of rows, using quantiles of a random ID sample. Unlike
+ * splitting [min, max] into equal intervals, gaps in IDs do not make ranges uneven.
+ */
+final class Partitions {
+
+    private Partitions() {
+    }
+
+    /**
+     * Returns ranges, which cover all IDs up to max ID without gaps or overlaps.
+     *
+     * @param sample     random sample of IDs in any order
+     * @param partitions max number of ranges
+     * @param maxId      inclusive upper bound of the last range
+     * @return a list of [fromId, toId] inclusive ranges ordered by ID
+     */
+    static List<long[]> split(List<Long> sample, int partitions, long maxId) {
+        long[] ids = new long[sample.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = sample.get(i);
+        }
+        Arrays.sort(ids);
+
+        List<long[]> ranges = new ArrayList<>(Math.max(1, partitions));
+        long fromId = Long.MIN_VALUE;
+        for (int i = 1; i < partitions && ids.length > 0; i++) {
+            long boundary = ids[(int) ((long) i * ids.length / partitions)];
+            if (boundary > fromId && boundary <= maxId) {
+                ranges.add(new long[]{fromId, boundary - 1});
+                fromId = boundary;
+            }
+        }
+        ranges.add(new long[]{fromId, maxId});
+        return ranges;
+    }
+}
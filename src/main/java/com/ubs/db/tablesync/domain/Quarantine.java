@@ -0,0 +1,86 @@
+package com.ubs.db.tablesync.domain;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Rows, which could not be written to a source repeatedly. Failed attempts are counted per row, a row failing max
+ * number of attempts in a row is quarantined and skipped by further synchronizations until restart, so it does not
+ * fail every run. Failed rows, which are not quarantined, are kept to be retried. Thread-safe, as partitions are
+ * synchronized concurrently.
+ */
+class Quarantine {
+
+    private final int maxAttempts;
+
+    private final LongConsumer onQuarantined;
+
+    private final Map<Long, Integer> failures = new ConcurrentHashMap<>();
+
+    private final Set<Long> quarantined = ConcurrentHashMap.newKeySet();
+
+    private final Set<Long> retries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param maxAttempts   number of failed attempts, after which row is quarantined, not positive value to retry
+     *                      failed rows forever
+     * @param onQuarantined called with ID of each quarantined row
+     */
+    Quarantine(int maxAttempts, LongConsumer onQuarantined) {
+        this.maxAttempts = maxAttempts;
+        this.onQuarantined = onQuarantined;
+    }
+
+    boolean contains(long id) {
+        return !quarantined.isEmpty() && quarantined.contains(id);
+    }
+
+    void failed(long id) {
+        int attempts = failures.merge(id, 1, Integer::sum);
+        if (maxAttempts > 0 && attempts >= maxAttempts) {
+            failures.remove(id);
+            retries.remove(id);
+            quarantined.add(id);
+            onQuarantined.accept(id);
+        } else {
+            retries.add(id);
+        }
+    }
+
+    void succeeded(long id) {
+        if (!failures.isEmpty()) {
+            failures.remove(id);
+            retries.remove(id);
+        }
+    }
+
+    /**
+     * Keeps a row to be retried without counting a failed attempt, e.g. if it was written to one source only.
+     */
+    void retry(long id) {
+        retries.add(id);
+    }
+
+    /**
+     * Takes IDs of failed rows to retry, which were kept since the previous call.
+     *
+     * @return IDs in ascending order
+     */
+    SortedSet<Long> takeRetries() {
+        SortedSet<Long> ids = new TreeSet<>(retries);
+        retries.removeAll(ids);
+        return ids;
+    }
+
+    boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    int size() {
+        return quarantined.size();
+    }
+}
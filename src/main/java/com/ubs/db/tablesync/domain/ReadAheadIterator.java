@@ -0,0 +1,158 @@
+package com.ubs.db.tablesync.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterator, which drains another iterator on a stage thread ahead of consumer. Elements are handed over in chunks
+ * through a bounded queue, so the stage reads at most given number of chunks ahead and then waits for consumer.
+ * Work done by source iterator, like reading pages from a database and hashing rows, overlaps with work of consumer.
+ * Failure of source is rethrown to consumer once all elements read before it are consumed.
+ * <p>
+ * Must be closed, so the stage stops if consumer does not read all elements.
+ *
+ * @param <E> element type
+ */
+class ReadAheadIterator<E> implements Iterator<E>, AutoCloseable {
+
+    private static final long OFFER_MILLIS = 100;
+
+    private final List<E> end = Collections.emptyList();
+
+    private final Iterator<E> source;
+
+    private final int chunkSize;
+
+    private final BlockingQueue<List<E>> chunks;
+
+    private volatile boolean closed;
+
+    private volatile Throwable failure;
+
+    private volatile boolean finished;
+
+    private List<E> chunk;
+
+    private int index;
+
+    private boolean ended;
+
+    /**
+     * @param source    iterator to read on stage thread
+     * @param executor  runs stage
+     * @param chunkSize number of elements handed over at once
+     * @param depth     number of chunks read ahead of consumer
+     */
+    ReadAheadIterator(Iterator<E> source, Executor executor, int chunkSize, int depth) {
+        this.source = source;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunks = new ArrayBlockingQueue<>(Math.max(1, depth) + 1);
+        executor.execute(this::read);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (chunk != null && index < chunk.size()) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        try {
+            chunk = take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reading ahead is interrupted", e);
+        }
+        index = 0;
+        if (chunk == end) {
+            ended = true;
+            chunk = null;
+            rethrowFailure();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.get(index++);
+    }
+
+    /**
+     * Stops stage and drops elements read ahead.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        chunks.clear();
+    }
+
+    private void read() {
+        List<E> next = new ArrayList<>(chunkSize);
+        try {
+            while (!closed && source.hasNext()) {
+                next.add(source.next());
+                if (next.size() >= chunkSize) {
+                    put(next);
+                    next = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            if (!next.isEmpty()) {
+                put(next);
+            }
+            put(end);
+            finished = true;
+        }
+    }
+
+    private List<E> take() throws InterruptedException {
+        List<E> next;
+        while ((next = chunks.poll(OFFER_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            //end marker is missing only if stage was interrupted
+            if (finished && chunks.isEmpty()) {
+                return end;
+            }
+        }
+        return next;
+    }
+
+    private void put(List<E> next) {
+        try {
+            while (!closed && !chunks.offer(next, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                //wait for consumer, unless it is closed
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (failure == null) {
+                failure = e;
+            }
+            closed = true;
+        }
+    }
+
+    private void rethrowFailure() {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Reading ahead failed", failure);
+        }
+    }
+}
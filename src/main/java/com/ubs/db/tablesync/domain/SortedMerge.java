@@ -0,0 +1,277 @@
+package com.ubs.db.tablesync.domain;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publisher, which merges two publishers of elements ordered by key into pairs of elements with the same key. A pair
+ * has the element of one publisher only, if the other one has no element with its key.
+ * <p>
+ * Demand is driven by subscriber: each publisher is requested a bounded number of elements ahead and replenished as
+ * pairs are taken, so a slow subscriber stops both publishers instead of buffering them. Failure of either publisher
+ * cancels the other one and is passed to subscriber.
+ *
+ * @param <E> element type
+ */
+class SortedMerge<E> implements Publisher<SortedMerge.Pair<E>> {
+
+    private final Publisher<E> main;
+
+    private final Publisher<E> mirror;
+
+    private final ToLongFunction<E> keyOf;
+
+    private final int prefetch;
+
+    /**
+     * @param main     elements of main source ordered by key
+     * @param mirror   elements of mirror source ordered by key
+     * @param keyOf    key of element
+     * @param prefetch number of elements requested from each publisher ahead of subscriber
+     */
+    SortedMerge(Publisher<E> main, Publisher<E> mirror, ToLongFunction<E> keyOf, int prefetch) {
+        this.main = main;
+        this.mirror = mirror;
+        this.keyOf = keyOf;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Pair<E>> subscriber) {
+        Merger<E> merger = new Merger<>(subscriber, keyOf, prefetch);
+        subscriber.onSubscribe(merger);
+        main.subscribe(merger.main);
+        mirror.subscribe(merger.mirror);
+    }
+
+    /**
+     * Elements of both publishers with the same key, either of them is null if its publisher has no such element.
+     */
+    static class Pair<E> {
+
+        private final E main;
+
+        private final E mirror;
+
+        private Pair(E main, E mirror) {
+            this.main = main;
+            this.mirror = mirror;
+        }
+
+        E getMain() {
+            return main;
+        }
+
+        E getMirror() {
+            return mirror;
+        }
+    }
+
+    private static class Merger<E> implements Subscription {
+
+        private final Subscriber<? super Pair<E>> subscriber;
+
+        private final ToLongFunction<E> keyOf;
+
+        private final Input<E> main;
+
+        private final Input<E> mirror;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        //number of signals to drain, only the thread which raised it from 0 emits
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private volatile boolean cancelled;
+
+        private long emitted;
+
+        private Merger(Subscriber<? super Pair<E>> subscriber, ToLongFunction<E> keyOf, int prefetch) {
+            this.subscriber = subscriber;
+            this.keyOf = keyOf;
+            this.main = new Input<>(this, prefetch);
+            this.mirror = new Input<>(this, prefetch);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested number of pairs must be positive: " + n));
+                return;
+            }
+            requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            main.cancel();
+            mirror.cancel();
+            if (pending.getAndIncrement() == 0) {
+                clear();
+            }
+        }
+
+        private void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+            drain();
+        }
+
+        private void drain() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                long demand = requested.get();
+                while (true) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+                    if (failure.get() != null) {
+                        cancelled = true;
+                        main.cancel();
+                        mirror.cancel();
+                        clear();
+                        subscriber.onError(failure.get());
+                        return;
+                    }
+                    //done is read before queue, so an empty queue of a done input is really exhausted
+                    boolean mainDone = main.done;
+                    E mainHead = main.queue.peek();
+                    boolean mirrorDone = mirror.done;
+                    E mirrorHead = mirror.queue.peek();
+
+                    if ((mainHead == null && !mainDone) || (mirrorHead == null && !mirrorDone)) {
+                        break;
+                    }
+                    if (mainHead == null && mirrorHead == null) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (emitted == demand) {
+                        break;
+                    }
+
+                    Pair<E> pair;
+                    if (mainHead != null && mirrorHead != null) {
+                        long mainKey = keyOf.applyAsLong(mainHead);
+                        long mirrorKey = keyOf.applyAsLong(mirrorHead);
+                        if (mainKey == mirrorKey) {
+                            pair = new Pair<>(main.poll(), mirror.poll());
+                        } else if (mainKey < mirrorKey) {
+                            pair = new Pair<>(main.poll(), null);
+                        } else {
+                            pair = new Pair<>(null, mirror.poll());
+                        }
+                    } else if (mainHead != null) {
+                        pair = new Pair<>(main.poll(), null);
+                    } else {
+                        pair = new Pair<>(null, mirror.poll());
+                    }
+                    subscriber.onNext(pair);
+                    emitted++;
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void clear() {
+            main.queue.clear();
+            mirror.queue.clear();
+        }
+    }
+
+    /**
+     * Subscriber to one of merged publishers, which queues its elements until they are paired.
+     */
+    private static class Input<E> implements Subscriber<E> {
+
+        private static final Subscription CANCELLED = new Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+
+        private final Merger<E> merger;
+
+        private final int prefetch;
+
+        private final int replenish;
+
+        private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+        private volatile boolean done;
+
+        //accessed by draining thread only
+        private int consumed;
+
+        private Input(Merger<E> merger, int prefetch) {
+            this.merger = merger;
+            this.prefetch = prefetch;
+            this.replenish = Math.max(1, prefetch - (prefetch >> 2));
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (subscription.compareAndSet(null, s)) {
+                s.request(prefetch);
+            } else {
+                s.cancel();
+            }
+        }
+
+        @Override
+        public void onNext(E element) {
+            queue.offer(element);
+            merger.drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            done = true;
+            merger.fail(e);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            merger.drain();
+        }
+
+        private E poll() {
+            E element = queue.poll();
+            if (++consumed == replenish) {
+                consumed = 0;
+                subscription.get().request(replenish);
+            }
+            return element;
+        }
+
+        private void cancel() {
+            Subscription s = subscription.getAndSet(CANCELLED);
+            if (s != null && s != CANCELLED) {
+                s.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ubs.db.tablesync.domain;
+
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+
+/**
+ * Audit trail of decisions made by synchronization of a table pair, one entry per row which is added, updated,
+ * removed, found in conflict or quarantined. Recording is on the hot path, so implementations should only buffer
+ * entries and write them asynchronously. Implementations must be thread-safe, as partitions are synchronized
+ * concurrently.
+ */
+public interface SyncJournal {
+
+    SyncJournal NONE = new SyncJournal() {
+    };
+
+    enum Decision {
+        ADD, UPDATE, REMOVE, CONFLICT, QUARANTINE
+    }
+
+    /**
+     * @param decision   what synchronization decided to do with the row
+     * @param side       source the row is written to, null for conflicts and quarantined rows
+     * @param id         ID of the row
+     * @param mainHash   hash of the row in main source, 0 if row is missing there
+     * @param mirrorHash hash of the row in mirror source, 0 if row is missing there
+     */
+    default void record(Decision decision, Side side, long id, long mainHash, long mirrorHash) {
+    }
+
+    /**
+     * Hands buffered entries over to be written. Called when each synchronization ends.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Writes all buffered entries and releases resources.
+     */
+    default void close() {
+    }
+}
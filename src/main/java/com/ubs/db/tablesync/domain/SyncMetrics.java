@@ -0,0 +1,81 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Receives measurements of each synchronization of a table pair. Values are aggregated over the whole run, including
+ * all partitions, and reported once when it ends. Implementations must be thread-safe, as table pairs are
+ * synchronized concurrently.
+ */
+public interface SyncMetrics {
+
+    SyncMetrics NONE = new SyncMetrics() {
+    };
+
+    enum Phase {
+        /**
+         * Loading ID lists, change log entries and key samples.
+         */
+        LOAD_IDS,
+        /**
+         * Reading rows, hashes and range checksums from sources.
+         */
+        FETCH,
+        /**
+         * Hashing rows, which are not hashed by sources.
+         */
+        HASH,
+        /**
+         * Comparing row hashes with stored ones and collecting mutations.
+         */
+        COMPARE,
+        /**
+         * Writing mutations to sources, including retries of failed batches.
+         */
+        APPLY
+    }
+
+    enum Side {
+        MAIN, MIRROR
+    }
+
+    enum Mutation {
+        ADD, UPDATE, REMOVE
+    }
+
+    /**
+     * @param phase phase of synchronization
+     * @param nanos total time spent in the phase during one run
+     */
+    default void phase(Phase phase, long nanos) {
+    }
+
+    /**
+     * @param side     source mutations were written to
+     * @param mutation kind of mutations
+     * @param count    number of rows written during one run
+     */
+    default void mutations(Side side, Mutation mutation, int count) {
+    }
+
+    /**
+     * @param count number of new conflicts found during one run, rows already known to be in conflict are not
+     *              counted again
+     */
+    default void conflicts(int count) {
+    }
+
+    /**
+     * Not reported for skipped runs.
+     *
+     * @param rows  number of rows compared during one run
+     * @param nanos duration of the run
+     */
+    default void run(long rows, long nanos) {
+    }
+
+    /**
+     * Reported instead of {@link #run(long, long)} for a run skipped because neither source changed since the
+     * previous one.
+     */
+    default void skipped() {
+    }
+}
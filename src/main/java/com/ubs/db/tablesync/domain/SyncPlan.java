@@ -0,0 +1,153 @@
+package com.ubs.db.tablesync.domain;
+
+import com.ubs.db.tablesync.domain.SyncJournal.Decision;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Complete diff of a table pair computed by {@link Synchronizer#plan()} without writing anything: one entry per row
+ * to be added, updated or removed in either source and per row in conflict. Each entry keeps hashes both rows had
+ * when the plan was computed, 0 for a missing row, so {@link Synchronizer#apply(SyncPlan)} writes only rows which
+ * did not change since. Entries are kept in primitive arrays sorted by ID. Not thread-safe while it is being built.
+ */
+public class SyncPlan {
+
+    private static final Decision[] DECISIONS = Decision.values();
+
+    private static final Side[] SIDES = Side.values();
+
+    private final Instant createdAt;
+
+    private long[] ids = new long[16];
+    private long[] mainHashes = new long[16];
+    private long[] mirrorHashes = new long[16];
+    //decision ordinal in lower bits, side ordinal + 1 in upper bits, 0 for no side
+    private byte[] kinds = new byte[16];
+    private int size;
+
+    private final int[][] counts = new int[SIDES.length + 1][DECISIONS.length];
+
+    SyncPlan() {
+        this.createdAt = Instant.now();
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return number of entries, including conflicts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of entries with given decision for given source
+     */
+    public int count(Decision decision, Side side) {
+        return counts[side == null ? 0 : side.ordinal() + 1][decision.ordinal()];
+    }
+
+    /**
+     * @return number of rows in conflict
+     */
+    public int conflicts() {
+        return count(Decision.CONFLICT, null);
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public Decision getDecision(int index) {
+        return DECISIONS[kinds[index] & 0x0f];
+    }
+
+    /**
+     * @return source the row is written to, null for conflicts
+     */
+    public Side getSide(int index) {
+        int side = kinds[index] >> 4;
+        return side == 0 ? null : SIDES[side - 1];
+    }
+
+    public long getMainHash(int index) {
+        return mainHashes[index];
+    }
+
+    public long getMirrorHash(int index) {
+        return mirrorHashes[index];
+    }
+
+    void add(Decision decision, Side side, long id, long mainHash, long mirrorHash) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            mainHashes = Arrays.copyOf(mainHashes, size * 2);
+            mirrorHashes = Arrays.copyOf(mirrorHashes, size * 2);
+            kinds = Arrays.copyOf(kinds, size * 2);
+        }
+        int sideIndex = side == null ? 0 : side.ordinal() + 1;
+        ids[size] = id;
+        mainHashes[size] = mainHash;
+        mirrorHashes[size] = mirrorHash;
+        kinds[size] = (byte) (sideIndex << 4 | decision.ordinal());
+        counts[sideIndex][decision.ordinal()]++;
+        size++;
+    }
+
+    /**
+     * Appends entries of a plan computed for another partition.
+     */
+    void addAll(SyncPlan other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.getDecision(i), other.getSide(i), other.ids[i], other.mainHashes[i], other.mirrorHashes[i]);
+        }
+    }
+
+    /**
+     * Sorts entries by ID, so they are applied in order of ID.
+     */
+    void sort() {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = ids[i - 1] <= ids[i];
+        }
+        if (sorted) {
+            return;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+        long[] sortedIds = new long[Math.max(size, 16)];
+        long[] sortedMainHashes = new long[sortedIds.length];
+        long[] sortedMirrorHashes = new long[sortedIds.length];
+        byte[] sortedKinds = new byte[sortedIds.length];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedMainHashes[i] = mainHashes[order[i]];
+            sortedMirrorHashes[i] = mirrorHashes[order[i]];
+            sortedKinds[i] = kinds[order[i]];
+        }
+        ids = sortedIds;
+        mainHashes = sortedMainHashes;
+        mirrorHashes = sortedMirrorHashes;
+        kinds = sortedKinds;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncPlan [createdAt=" + createdAt
+                + ", mainAdds=" + count(Decision.ADD, Side.MAIN)
+                + ", mainUpdates=" + count(Decision.UPDATE, Side.MAIN)
+                + ", mainRemoves=" + count(Decision.REMOVE, Side.MAIN)
+                + ", mirrorAdds=" + count(Decision.ADD, Side.MIRROR)
+                + ", mirrorUpdates=" + count(Decision.UPDATE, Side.MIRROR)
+                + ", mirrorRemoves=" + count(Decision.REMOVE, Side.MIRROR)
+                + ", conflicts=" + conflicts() + "]";
+    }
+}
@@ -0,0 +1,213 @@
+package com.ubs.db.tablesync.domain;
+
+/**
+ * Settings of synchronization of one table pair, which tune batching, range diff, parallelism, pipeline and change
+ * log reads. Set once by configuration before the first synchronization. Defaults disable all optional modes.
+ */
+public class SyncSettings {
+
+    private int batchSize;
+
+    private int rangeDiffFanout;
+
+    private int rangeDiffLeafSize;
+
+    private boolean hashPushdown;
+
+    private int parallelism;
+
+    private int partitions;
+
+    private int partitionSampleSize;
+
+    private int quarantineAttempts;
+
+    private int pipelineDepth;
+
+    private int pipelineChunkSize;
+
+    private boolean changeLog;
+
+    private int changeLogBatchSize;
+
+    private long fullScanIntervalMillis;
+
+    private long idReconcileIntervalMillis;
+
+    private boolean fingerprintSkip;
+
+    /**
+     * Number of collected mutations, after which they are applied to sources. Not positive value means mutations
+     * are applied once per synchronization.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Number of ID buckets a divergent range is split into on each level of range diff. Value less than 2 disables
+     * range diff, so every synchronization scans both sources fully.
+     */
+    public int getRangeDiffFanout() {
+        return rangeDiffFanout;
+    }
+
+    public void setRangeDiffFanout(int rangeDiffFanout) {
+        this.rangeDiffFanout = rangeDiffFanout;
+    }
+
+    /**
+     * Max number of rows in a divergent range, which is merged row by row instead of being split further.
+     */
+    public int getRangeDiffLeafSize() {
+        return rangeDiffLeafSize;
+    }
+
+    public void setRangeDiffLeafSize(int rangeDiffLeafSize) {
+        this.rangeDiffLeafSize = rangeDiffLeafSize;
+    }
+
+    /**
+     * Whether row hashes are calculated by sources, so rows are loaded only if they have to be written.
+     */
+    public boolean isHashPushdown() {
+        return hashPushdown;
+    }
+
+    public void setHashPushdown(boolean hashPushdown) {
+        this.hashPushdown = hashPushdown;
+    }
+
+    /**
+     * Number of ID ranges synchronized concurrently. Value less than 2 means synchronization runs on calling thread.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Number of ID ranges, which ID space is split into for parallel synchronization.
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Number of sampled IDs used to find range boundaries for parallel synchronization.
+     */
+    public int getPartitionSampleSize() {
+        return partitionSampleSize;
+    }
+
+    public void setPartitionSampleSize(int partitionSampleSize) {
+        this.partitionSampleSize = partitionSampleSize;
+    }
+
+    /**
+     * Number of synchronizations a row may fail to be written in, before it is quarantined. Quarantined rows are
+     * reported to conflict handler and skipped until restart. Not positive value means failed rows are retried
+     * forever.
+     */
+    public int getQuarantineAttempts() {
+        return quarantineAttempts;
+    }
+
+    public void setQuarantineAttempts(int quarantineAttempts) {
+        this.quarantineAttempts = quarantineAttempts;
+    }
+
+    /**
+     * Number of chunks of rows each source is read ahead of comparison, not positive to disable pipeline.
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Number of rows handed over from a reading stage to comparison at once.
+     */
+    public int getPipelineChunkSize() {
+        return pipelineChunkSize;
+    }
+
+    public void setPipelineChunkSize(int pipelineChunkSize) {
+        this.pipelineChunkSize = pipelineChunkSize;
+    }
+
+    /**
+     * Whether both sources return changed row IDs by increasing sequence number, so synchronizations between full
+     * scans read only rows changed since the previous one. Sequence numbers come from change log tables filled by
+     * triggers or from version columns of rows.
+     */
+    public boolean isChangeLog() {
+        return changeLog;
+    }
+
+    public void setChangeLog(boolean changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Number of change log entries of each source read at once.
+     */
+    public int getChangeLogBatchSize() {
+        return changeLogBatchSize;
+    }
+
+    public void setChangeLogBatchSize(int changeLogBatchSize) {
+        this.changeLogBatchSize = changeLogBatchSize;
+    }
+
+    /**
+     * Interval between full scans, which catch changes missed by change logs. Not positive value means only the
+     * first synchronization scans fully.
+     */
+    public long getFullScanIntervalMillis() {
+        return fullScanIntervalMillis;
+    }
+
+    public void setFullScanIntervalMillis(long fullScanIntervalMillis) {
+        this.fullScanIntervalMillis = fullScanIntervalMillis;
+    }
+
+    /**
+     * Interval between reconciliations of ID sets of both sources, which detect rows removed from one source when
+     * changes do not report removals, like version columns. Not positive value disables reconciliation.
+     */
+    public long getIdReconcileIntervalMillis() {
+        return idReconcileIntervalMillis;
+    }
+
+    public void setIdReconcileIntervalMillis(long idReconcileIntervalMillis) {
+        this.idReconcileIntervalMillis = idReconcileIntervalMillis;
+    }
+
+    /**
+     * Whether each synchronization comparing whole tables first compares fingerprints of both tables (row count, min
+     * and max ID and sum of row hashes aggregated by sources) with the ones taken by the previous one, and is skipped
+     * if neither changed.
+     */
+    public boolean isFingerprintSkip() {
+        return fingerprintSkip;
+    }
+
+    public void setFingerprintSkip(boolean fingerprintSkip) {
+        this.fingerprintSkip = fingerprintSkip;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ubs.db.tablesync.domain;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements collected during one synchronization run, which are reported to SyncMetrics when it ends. Partitions
+ * add to the same instance concurrently. Apply and row load times and mutation counts are taken from change sets
+ * used by the run.
+ */
+class SyncStats {
+
+    private final LongAdder[] phaseNanos = new LongAdder[SyncMetrics.Phase.values().length];
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final Queue<ChangeSet<?>> changeSets = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean skipped;
+
+    SyncStats() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    void time(SyncMetrics.Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    void row() {
+        rows.increment();
+    }
+
+    void conflict() {
+        conflicts.increment();
+    }
+
+    void track(ChangeSet<?> changes) {
+        changeSets.add(changes);
+    }
+
+    void skip() {
+        skipped = true;
+    }
+
+    /**
+     * @return whether any row failed to be written by change sets of the run
+     */
+    boolean hasFailures() {
+        for (ChangeSet<?> changes : changeSets) {
+            if (changes.getFailed() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for batches still being written by change sets, so their counts are complete. Failures are ignored, as
+     * they are only left over when the run itself fails.
+     */
+    void awaitWrites() {
+        for (ChangeSet<?> changes : changeSets) {
+            try {
+                changes.await();
+            } catch (RuntimeException e) {
+                //run is failing already
+            }
+        }
+    }
+
+    void publish(SyncMetrics metrics, long runNanos) {
+        int[][] mutations = new int[SyncMetrics.Side.values().length][SyncMetrics.Mutation.values().length];
+        for (ChangeSet<?> changes : changeSets) {
+            time(SyncMetrics.Phase.FETCH, changes.getLoadNanos());
+            time(SyncMetrics.Phase.APPLY, changes.getApplyNanos());
+            for (SyncMetrics.Side side : SyncMetrics.Side.values()) {
+                for (SyncMetrics.Mutation mutation : SyncMetrics.Mutation.values()) {
+                    mutations[side.ordinal()][mutation.ordinal()] += changes.getApplied(side, mutation);
+                }
+            }
+        }
+
+        for (SyncMetrics.Phase phase : SyncMetrics.Phase.values()) {
+            metrics.phase(phase, phaseNanos[phase.ordinal()].sum());
+        }
+        for (SyncMetrics.Side side : SyncMetrics.Side.values()) {
+            for (SyncMetrics.Mutation mutation : SyncMetrics.Mutation.values()) {
+                metrics.mutations(side, mutation, mutations[side.ordinal()][mutation.ordinal()]);
+            }
+        }
+        metrics.conflicts(conflicts.intValue());
+        if (skipped) {
+            metrics.skipped();
+        } else {
+            metrics.run(rows.sum(), runNanos);
+        }
+    }
+}
@@ -1,15 +1,44 @@
 package com.ubs.db.tablesync.domain;
 
+import com.ubs.db.tablesync.domain.SyncJournal.Decision;
+import com.ubs.db.tablesync.domain.SyncMetrics.Phase;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+import com.ubs.db.tablesync.model.Conflict;
+import com.ubs.db.tablesync.model.RangeChecksum;
+import com.ubs.db.tablesync.model.RowChange;
+import com.ubs.db.tablesync.model.RowHash;
 import com.ubs.db.tablesync.service.ConflictHandler;
 import com.ubs.db.tablesync.service.DataManager;
 import com.ubs.db.tablesync.service.HashService;
+import com.ubs.db.tablesync.service.ReactiveDataManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Parametrized stateful synchronizer with basic logic. Can be extended to work with different tables, schemas and entities.
@@ -20,7 +49,10 @@ abstract class Synchronizer<T> {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    Map<Long, String> hashMap;
+    /**
+     * Name of synchronized table pair, which conflicts are recorded under.
+     */
+    abstract String getName();
 
     abstract DataManager<Long, T> getDataManager();
 
@@ -28,144 +60,1070 @@ abstract class Synchronizer<T> {
 
     abstract ConflictHandler getConflictHandler();
 
-    Synchronizer(Map<Long, String> hashMap) {
-        this.hashMap = hashMap;
-    }
+    abstract HashStore getHashStore();
+
+    abstract Long getId(T row);
+
+    /**
+     * Tuning of synchronization, which is set by configuration and does not change between runs.
+     */
+    abstract SyncSettings getSettings();
+
+    /**
+     * HashService used by previous version, which hashes in HashStore may still come from. If present, first
+     * synchronization loads rows and replaces stored hashes matching legacy ones with current hashes. Null, if no
+     * migration is needed.
+     */
+    abstract HashService<T> getLegacyHashService();
+
+    abstract ExecutorService getExecutor();
+
+    /**
+     * Runs each flushed batch of mutations in its own transaction, so synchronization is committed in chunks of
+     * batch size.
+     */
+    abstract TransactionOperations getTransactionOperations();
+
+    /**
+     * Receives time spent in each phase, numbers of mutations and throughput of each synchronization.
+     */
+    abstract SyncMetrics getMetrics();
+
+    /**
+     * Receives decision made for each row, which is added, updated, removed, in conflict or quarantined.
+     */
+    abstract SyncJournal getJournal();
+
+    /**
+     * Runs pipeline stages: reading ahead and hashing rows of each source, prefetching reads of mirror source and
+     * writing batches of mutations, while rows are compared on synchronizing thread. Null to run all of them on
+     * synchronizing thread.
+     */
+    abstract ExecutorService getPipelineExecutor();
+
+    /**
+     * Publisher based reads of both sources used by {@link #syncReactive()}, null if it is not supported.
+     */
+    abstract ReactiveDataManager<Long, T> getReactiveDataManager();
+
+    /**
+     * Runs blocking writes of batches of mutations collected by {@link #syncReactive()}.
+     */
+    abstract Scheduler getReactiveScheduler();
+
+    private boolean fullScanDone;
+
+    private boolean migrating;
+
+    private long lastFullScanMillis;
+
+    private long lastIdReconcileMillis;
+
+    private long mainChangeSeq;
+
+    private long mirrorChangeSeq;
+
+    //fingerprints taken before the last synchronization of whole tables, which completed without failed rows
+    private List<RangeChecksum> mainFingerprint;
+
+    private List<RangeChecksum> mirrorFingerprint;
+
+    private volatile Quarantine quarantine;
+
+    private volatile SyncStats stats = new SyncStats();
+
+    //fingerprints of main and mirror hashes of rows in conflict, which are already handed to conflict handler
+    private final Map<Long, Long> conflicts = new ConcurrentHashMap<>();
+
+    //synchronization, planning and applying a plan of the same table pair never overlap, reactive synchronization
+    //releases the permit on another thread than it was acquired on
+    private final Semaphore runPermit = new Semaphore(1);
 
     /**
      * Synchronizes two sources of data by comparing to stored hash of each row. Type of row, hashing method and
      * conflict resolution strategy are extracted to extending classes.
+     * <p>
+     * Both sources are read as streams of rows ordered by ID and merged in a single pass, so only the current row
+     * of each source has to be kept in memory. Mutations are collected into a change set and applied in batches,
+     * each committed in its own transaction. Rows failing to be written do not abort synchronization, they are
+     * retried by next ones and quarantined after several failures. With change log, such rows are merged by next
+     * synchronizations along with logged changes.
+     * <p>
+     * Rows changed in both sources are handed to conflict handler once and skipped by next synchronizations until
+     * either row changes again.
+     * <p>
+     * When range diff is enabled, only the first synchronization scans both sources fully. Next ones compare
+     * checksums of ID buckets aggregated by sources, recurse into buckets which differ and merge only those.
+     * <p>
+     * With hash pushdown, streams of IDs and hashes calculated by sources are merged instead of rows.
+     * <p>
+     * With parallelism above 1, ID space is split into ranges with similar number of rows, which are synchronized
+     * concurrently by worker pool.
+     * <p>
+     * With pipeline, mirror source is read concurrently with main one: row streams are read ahead, and reads of IDs,
+     * changes, checksums and rows by ID are prefetched, so sources on different servers are not waited for in turn.
+     * <p>
+     * With change log, synchronizations between periodic full scans compare only rows, which IDs were logged in
+     * either change log since the previous synchronization. If sources do not log removals, ID sets of both sources
+     * are reconciled periodically.
+     * <p>
+     * With fingerprint skip, a synchronization comparing whole tables is skipped, if fingerprints of both tables are
+     * the same as before the previous one. Fingerprints are taken before rows are read, so changes made during a
+     * synchronization make the next one run. With range diff, they are reused as root checksums. Synchronizations of
+     * logged changes take no fingerprints. Skipped synchronizations are reported to SyncMetrics.
+     * <p>
+     * Time spent in each phase and numbers of mutations are reported to SyncMetrics when synchronization ends, even
+     * if it fails. Decision made for each row is recorded to SyncJournal instead of being logged.
+     *
+     * @return number of rows added, updated or removed in both sources
      */
-    public void sync() {
-        List<Long> mainIdList = getDataManager().mainIdList();
-        List<Long> mirrorIdList = getDataManager().mirrorIdList();
+    public int sync() {
+        runPermit.acquireUninterruptibly();
+        try {
+            stats = new SyncStats();
+            long started = System.nanoTime();
+            try {
+                return syncRun();
+            } finally {
+                stats.awaitWrites();
+                stats.publish(getMetrics(), System.nanoTime() - started);
+                getJournal().flush();
+            }
+        } finally {
+            runPermit.release();
+        }
+    }
 
-        int mainIndex = 0;
-        int mirrorIndex = 0;
+    /**
+     * Computes complete diff of both sources as a dry run: scans them fully, in parallel partitions if parallelism
+     * is above 1, and makes the same decisions as synchronization would, but writes nothing to sources, stored hashes
+     * or conflict handler. Rows, which are equal but their hashes are not stored yet, are not part of the plan.
+     *
+     * @return plan sorted by ID
+     */
+    public SyncPlan plan() {
+        runPermit.acquireUninterruptibly();
+        try {
+            stats = new SyncStats();
+            migrating = !fullScanDone && getLegacyHashService() != null;
+            SyncPlan plan = new SyncPlan();
+            if (getSettings().getParallelism() > 1) {
+                syncPartitions(true, true).forEach(changes -> plan.addAll(changes.getPlan()));
+            } else {
+                merge(mainRows(), mirrorRows(), newChangeSet(plan));
+            }
+            plan.sort();
+            logger.info("{} is planned", plan);
+            return plan;
+        } finally {
+            migrating = false;
+            runPermit.release();
+        }
+    }
 
-        int maxSize = Math.max(mainIdList.size(), mirrorIdList.size());
+    /**
+     * Applies a plan computed by {@link #plan()} in batches in order of ID. Rows of each batch are loaded by ID from
+     * both sources, a row is written only if hashes of both rows are the same as when the plan was computed. Rows
+     * changed since, conflicts and quarantined rows are skipped and left to next synchronization.
+     *
+     * @param plan plan of this synchronizer
+     * @return number of rows added, updated or removed in both sources
+     */
+    public int apply(SyncPlan plan) {
+        runPermit.acquireUninterruptibly();
+        try {
+            stats = new SyncStats();
+            long started = System.nanoTime();
+            try {
+                ChangeSet<T> changes = newChangeSet(null);
+                int batchSize = getSettings().getBatchSize() > 0 ? getSettings().getBatchSize() : plan.size();
+                int skipped = 0;
+                for (int from = 0; from < plan.size(); from += batchSize) {
+                    skipped += applyBatch(plan, from, Math.min(from + batchSize, plan.size()), changes);
+                    changes.flush();
+                }
+                if (skipped > 0) {
+                    logger.info("{} planned rows changed since the plan was computed and are skipped", skipped);
+                }
+                return changes.getApplied();
+            } finally {
+                stats.awaitWrites();
+                stats.publish(getMetrics(), System.nanoTime() - started);
+                getJournal().flush();
+            }
+        } finally {
+            runPermit.release();
+        }
+    }
 
-        while (mainIndex < maxSize && mirrorIndex < maxSize) {
+    /**
+     * Synchronizes both sources by a full scan driven by demand instead of by a thread: rows of both sources are
+     * published by {@link ReactiveDataManager}, merged by ID as they arrive and compared with the same decisions as
+     * {@link #sync()} makes. Each source is read at most pipeline depth chunks ahead of comparison. Once a batch of
+     * mutations is collected, reading pauses until the batch is written on reactive scheduler, so no thread waits for
+     * database or for the other source in between. Many table pairs can be synchronized concurrently by a few
+     * threads this way.
+     * <p>
+     * Change logs, range diff and partitions are not used, every reactive synchronization scans fully. If another
+     * synchronization of the table pair is running, this one is skipped.
+     *
+     * @return number of rows added, updated or removed in both sources, once synchronization completes
+     */
+    public Mono<Integer> syncReactive() {
+        return Mono.defer(() -> {
+            if (getReactiveDataManager() == null) {
+                return Mono.error(new IllegalStateException("Reactive synchronization of " + getName()
+                        + " is not supported, there is no reactive data manager"));
+            }
+            if (!runPermit.tryAcquire()) {
+                logger.debug("Reactive synchronization of {} is skipped, another one is running", getName());
+                return Mono.just(0);
+            }
+            SyncStats runStats = new SyncStats();
+            stats = runStats;
+            long started = System.nanoTime();
+            migrating = !fullScanDone && getLegacyHashService() != null;
+            //written only by explicit flushes, which run on reactive scheduler
+            ChangeSet<T> changes = new ChangeSet<>(getDataManager(), getHashStore(), this::getId, 0,
+                    getTransactionOperations(), quarantine(), null, null);
+            runStats.track(changes);
+            SyncSettings settings = getSettings();
+            int chunkSize = Math.max(1, settings.getPipelineChunkSize());
 
-            Optional<Long> mainIdOpt = next(mainIdList, mainIndex);
-            Optional<Long> mirrorIdOpt = next(mirrorIdList, mirrorIndex);
+            return Flux.from(new SortedMerge<>(reactiveMainRows(), reactiveMirrorRows(), HashedRow::getId,
+                    chunkSize * Math.max(1, settings.getPipelineDepth())))
+                    .buffer(chunkSize)
+                    .concatMap(pairs -> {
+                        pairs.forEach(pair -> syncPair(pair, changes));
+                        return settings.getBatchSize() > 0 && changes.getPending() >= settings.getBatchSize()
+                                ? flushReactive(changes) : Mono.<Void>empty();
+                    }, 1)
+                    .then(flushReactive(changes))
+                    .then(Mono.fromCallable(() -> {
+                        if (migrating) {
+                            logger.info("Stored hashes are migrated from {}",
+                                    getLegacyHashService().getClass().getSimpleName());
+                        }
+                        fullScanDone = true;
+                        return changes.getApplied();
+                    }))
+                    .doFinally(signal -> {
+                        migrating = false;
+                        runStats.publish(getMetrics(), System.nanoTime() - started);
+                        getJournal().flush();
+                        runPermit.release();
+                    });
+        });
+    }
 
-            if (mainIdOpt.isPresent() && mirrorIdOpt.isPresent()) {
-                Long mainId = mainIdOpt.get();
-                Long mirrorId = mirrorIdOpt.get();
+    private int syncRun() {
+        SyncSettings settings = getSettings();
+        boolean fullScan = !fullScanDone
+                || (settings.isChangeLog() ? isFullScanDue() : settings.getRangeDiffFanout() <= 1);
+        //between full scans, an empty change log tells that nothing moved without aggregating whole tables
+        if (!settings.isFingerprintSkip() || (settings.isChangeLog() && !fullScan)) {
+            return syncDiff(fullScan, null, null);
+        }
+        Supplier<List<RangeChecksum>> mirrorChecksumList = prefetched(Phase.FETCH,
+                () -> getDataManager().mirrorChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1));
+        List<RangeChecksum> mainChecksums = timed(Phase.FETCH,
+                () -> getDataManager().mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1));
+        List<RangeChecksum> mirrorChecksums = mirrorChecksumList.get();
+        if (mainChecksums.equals(mainFingerprint) && mirrorChecksums.equals(mirrorFingerprint)) {
+            stats.skip();
+            if (settings.isChangeLog()) {
+                //tables are the same as when they were last scanned, so the due scan would find nothing
+                lastFullScanMillis = System.currentTimeMillis();
+            }
+            logger.info("Synchronization of {} is skipped, neither table changed since the previous one", getName());
+            return 0;
+        }
 
-                T mainRow = getDataManager().mainRow(mainId);
-                T mirrorRow = getDataManager().mirrorRow(mirrorId);
+        mainFingerprint = null;
+        mirrorFingerprint = null;
+        int applied = syncDiff(fullScan, mainChecksums, mirrorChecksums);
+        if (!stats.hasFailures()) {
+            mainFingerprint = mainChecksums;
+            mirrorFingerprint = mirrorChecksums;
+        }
+        return applied;
+    }
 
-                if (mainId.equals(mirrorId)) {
+    /**
+     * @param mainChecksums   checksum of whole main source as a single bucket, null if it is not fetched yet
+     * @param mirrorChecksums checksum of whole mirror source as a single bucket, null if it is not fetched yet
+     */
+    private int syncDiff(boolean fullScan, List<RangeChecksum> mainChecksums, List<RangeChecksum> mirrorChecksums) {
+        migrating = fullScan && !fullScanDone && getLegacyHashService() != null;
 
-                    String mainCalcHash = calculateHash(mainRow);
-                    String mirrorCalcHash = calculateHash(mirrorRow);
-                    String storedHash = hashMap.get(mainId);
+        boolean changeLog = getSettings().isChangeLog();
+        if (changeLog && !fullScan) {
+            ChangeSet<T> changes = newChangeSet(null);
+            if (isIdReconcileDue()) {
+                reconcileIds(changes);
+            }
+            syncRetries(changes);
+            syncChanges(changes);
+            changes.flush();
+            getDataManager().purgeMainChanges(mainChangeSeq);
+            getDataManager().purgeMirrorChanges(mirrorChangeSeq);
+            return changes.getApplied();
+        }
 
-                    if (allHashesDifferent(mainCalcHash, mirrorCalcHash, storedHash)) {
-                        getConflictHandler().handle(mainId);
-                        hashMap.remove(mainId);
-                        logger.error("! Row with ID: {} has conflict, please resolve it manually", mainId);
+        //whole sources are compared, failed rows kept stored hashes, so they are compared again anyway
+        quarantine().takeRetries();
+        long startMillis = System.currentTimeMillis();
+        long lastMainChangeSeq = changeLog ? getDataManager().mainChangeSeq() : 0;
+        long lastMirrorChangeSeq = changeLog ? getDataManager().mirrorChangeSeq() : 0;
 
-                    } else if (onlyMainHashMatchStored(mainCalcHash, mirrorCalcHash, storedHash)) {
-                        getDataManager().updateMainRow(mirrorRow);
-                        hashMap.put(mainId, mirrorCalcHash);
-                        logger.debug("> {} is updated in Main", mirrorRow);
+        int applied;
+        if (getSettings().getParallelism() > 1) {
+            applied = syncPartitions(fullScan, false).stream().mapToInt(ChangeSet::getApplied).sum();
+        } else {
+            ChangeSet<T> changes = newChangeSet(null);
+            if (fullScan) {
+                merge(mainRows(), mirrorRows(), changes);
+            } else if (mainChecksums != null) {
+                mergeDivergentRanges(mainChecksums, mirrorChecksums, changes);
+            } else {
+                mergeDivergentRanges(Long.MIN_VALUE, Long.MAX_VALUE, changes);
+            }
+            changes.flush();
+            applied = changes.getApplied();
+        }
 
-                    } else if (onlyMirrorHashMatchStored(mainCalcHash, mirrorCalcHash, storedHash)) {
-                        getDataManager().updateMirrorRow(mainRow);
-                        hashMap.put(mainId, mainCalcHash);
-                        logger.debug("> {} is updated in Mirror", mainRow);
-                    }
-                    mainIndex++;
-                    mirrorIndex++;
+        if (migrating) {
+            logger.info("Stored hashes are migrated from {}", getLegacyHashService().getClass().getSimpleName());
+            migrating = false;
+        }
+        if (fullScan && changeLog) {
+            //changes logged before the scan are covered by it
+            mainChangeSeq = Math.max(mainChangeSeq, lastMainChangeSeq);
+            mirrorChangeSeq = Math.max(mirrorChangeSeq, lastMirrorChangeSeq);
+            getDataManager().purgeMainChanges(mainChangeSeq);
+            getDataManager().purgeMirrorChanges(mirrorChangeSeq);
+        }
+        if (fullScan) {
+            lastFullScanMillis = startMillis;
+            lastIdReconcileMillis = startMillis;
+        }
+        fullScanDone = true;
+        return applied;
+    }
+
+    int size() {
+        return getHashStore().size();
+    }
+
+    private boolean isFullScanDue() {
+        long intervalMillis = getSettings().getFullScanIntervalMillis();
+        return intervalMillis > 0 && System.currentTimeMillis() - lastFullScanMillis >= intervalMillis;
+    }
+
+    private boolean isIdReconcileDue() {
+        long intervalMillis = getSettings().getIdReconcileIntervalMillis();
+        return intervalMillis > 0 && System.currentTimeMillis() - lastIdReconcileMillis >= intervalMillis;
+    }
+
+    /**
+     * Compares ID sets of both sources and merges rows, which exist in one source only. Such a row was either added
+     * or removed since it was synchronized, stored hash tells which one. ID sets are loaded compressed and their
+     * differences are computed run by run, so rows present in both sources cost nothing but their share of a run.
+     */
+    private void reconcileIds(ChangeSet<T> changes) {
+        lastIdReconcileMillis = System.currentTimeMillis();
+        Supplier<IdSet> mirrorIdSet = prefetched(Phase.LOAD_IDS, () -> getDataManager().mirrorIdSet());
+        IdSet mainIds = timed(Phase.LOAD_IDS, () -> getDataManager().mainIdSet());
+        IdSet mirrorIds = mirrorIdSet.get();
+
+        IdSet mainOnly = mainIds.minus(mirrorIds);
+        IdSet mirrorOnly = mirrorIds.minus(mainIds);
+        syncIds(mainOnly, changes);
+        syncIds(mirrorOnly, changes);
+        logger.debug("{} IDs present in one source only are reconciled", mainOnly.size() + mirrorOnly.size());
+    }
+
+    /**
+     * Merges rows of given IDs in chunks of change log batch size.
+     */
+    private void syncIds(IdSet ids, ChangeSet<T> changes) {
+        SortedSet<Long> chunk = new TreeSet<>();
+        for (PrimitiveIterator.OfLong iterator = ids.iterator(); iterator.hasNext(); ) {
+            chunk.add(iterator.nextLong());
+            if (chunk.size() >= getSettings().getChangeLogBatchSize()) {
+                syncIds(chunk, changes);
+                chunk = new TreeSet<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            syncIds(chunk, changes);
+        }
+    }
+
+    /**
+     * Merges rows, which failed to be written by previous synchronizations, in chunks of change log batch size. Their
+     * logged changes are purged already, so each of them is attempted again this way, until it is written or
+     * quarantined.
+     */
+    private void syncRetries(ChangeSet<T> changes) {
+        SortedSet<Long> chunk = new TreeSet<>();
+        for (Long id : quarantine().takeRetries()) {
+            chunk.add(id);
+            if (chunk.size() >= getSettings().getChangeLogBatchSize()) {
+                syncIds(chunk, changes);
+                chunk = new TreeSet<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            syncIds(chunk, changes);
+        }
+    }
+
+    /**
+     * Reads changes of both sources in chunks and merges rows of changed IDs. Rows are loaded by ID, so each chunk
+     * costs two queries regardless of table size. Sequence numbers are advanced in memory once rows of a chunk are
+     * written, so a chunk failing to be written is read again by next synchronization. Change logs are purged after
+     * changes are applied.
+     */
+    private void syncChanges(ChangeSet<T> changes) {
+        int changeCount = 0;
+        while (true) {
+            long nextMainSeq = mainChangeSeq;
+            long nextMirrorSeq = mirrorChangeSeq;
+            long afterMirrorSeq = mirrorChangeSeq;
+            Supplier<List<RowChange>> mirrorChangeList = prefetched(Phase.LOAD_IDS,
+                    () -> getDataManager().mirrorChanges(afterMirrorSeq, getSettings().getChangeLogBatchSize()));
+            List<RowChange> mainChanges = timed(Phase.LOAD_IDS,
+                    () -> getDataManager().mainChanges(mainChangeSeq, getSettings().getChangeLogBatchSize()));
+            List<RowChange> mirrorChanges = mirrorChangeList.get();
+            if (mainChanges.isEmpty() && mirrorChanges.isEmpty()) {
+                break;
+            }
 
+            SortedSet<Long> ids = new TreeSet<>();
+            for (RowChange change : mainChanges) {
+                ids.add(change.getId());
+                nextMainSeq = Math.max(nextMainSeq, change.getSeq());
+            }
+            for (RowChange change : mirrorChanges) {
+                ids.add(change.getId());
+                nextMirrorSeq = Math.max(nextMirrorSeq, change.getSeq());
+            }
+            changeCount += mainChanges.size() + mirrorChanges.size();
+
+            syncIds(ids, changes);
+            mainChangeSeq = nextMainSeq;
+            mirrorChangeSeq = nextMirrorSeq;
+        }
+        logger.debug("{} logged changes are synchronized", changeCount);
+    }
+
+    /**
+     * Loads rows with given IDs from both sources, merges them and applies changes, so an ID seen again in a later
+     * chunk is compared with rows already written. An ID missing in both sources was removed from both, so its
+     * stored hash is dropped.
+     */
+    private void syncIds(SortedSet<Long> ids, ChangeSet<T> changes) {
+        Supplier<List<T>> mirrorRowList = prefetched(Phase.FETCH, () -> getDataManager().mirrorRows(ids));
+        List<T> mainRows = new ArrayList<>(timed(Phase.FETCH, () -> getDataManager().mainRows(ids)));
+        List<T> mirrorRows = new ArrayList<>(mirrorRowList.get());
+        mainRows.sort(Comparator.comparing(this::getId));
+        mirrorRows.sort(Comparator.comparing(this::getId));
+
+        Set<Long> found = new HashSet<>();
+        mainRows.forEach(row -> found.add(getId(row)));
+        mirrorRows.forEach(row -> found.add(getId(row)));
+        for (Long id : ids) {
+            if (!found.contains(id) && getHashStore().contains(id)) {
+                changes.removeHash(id);
+            }
+        }
+
+        merge(map(mainRows.iterator(), this::hashed), map(mirrorRows.iterator(), this::hashed), changes);
+        changes.flush();
+    }
+
+    /**
+     * Loads rows of plan entries in [from, to) range from both sources and collects mutations of rows, which hashes
+     * did not change since the plan was computed.
+     *
+     * @return number of entries skipped as changed
+     */
+    private int applyBatch(SyncPlan plan, int from, int to, ChangeSet<T> changes) {
+        SortedSet<Long> ids = new TreeSet<>();
+        for (int i = from; i < to; i++) {
+            if (plan.getDecision(i) != Decision.CONFLICT) {
+                ids.add(plan.getId(i));
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Supplier<List<T>> mirrorRowList = prefetched(Phase.FETCH, () -> getDataManager().mirrorRows(ids));
+        Map<Long, HashedRow<T>> mainRows = byId(timed(Phase.FETCH, () -> getDataManager().mainRows(ids)));
+        Map<Long, HashedRow<T>> mirrorRows = byId(mirrorRowList.get());
+
+        int skipped = 0;
+        for (int i = from; i < to; i++) {
+            long id = plan.getId(i);
+            Decision decision = plan.getDecision(i);
+            if (decision == Decision.CONFLICT || quarantine().contains(id)) {
+                continue;
+            }
+            HashedRow<T> mainRow = mainRows.get(id);
+            HashedRow<T> mirrorRow = mirrorRows.get(id);
+            long mainHash = mainRow != null ? mainRow.getHash() : 0;
+            long mirrorHash = mirrorRow != null ? mirrorRow.getHash() : 0;
+            if (mainHash != plan.getMainHash(i) || mirrorHash != plan.getMirrorHash(i)) {
+                skipped++;
+                continue;
+            }
+
+            Side side = plan.getSide(i);
+            HashedRow<T> source = side == Side.MAIN ? mirrorRow : mainRow;
+            if (decision == Decision.REMOVE) {
+                changes.removeHash(id);
+                if (side == Side.MAIN) {
+                    changes.removeMain(mainRow);
                 } else {
-                    if (mainId > mirrorId) {        //row removed from MAIN
-                        getDataManager().removeMirrorRow(mirrorRow);
-                        hashMap.remove(mirrorId);
-                        logger.debug("- {} is removed from Mirror", mirrorRow);
-                        mirrorIndex++;
-
-                    } else {                        //row removed from MIRROR
-                        getDataManager().removeMainRow(mainRow);
-                        hashMap.remove(mainId);
-                        logger.debug("- {} is removed from Main", mainRow);
-                        mainIndex++;
+                    changes.removeMirror(mirrorRow);
+                }
+            } else {
+                changes.putHash(id, source.getHash());
+                if (decision == Decision.ADD) {
+                    if (side == Side.MAIN) {
+                        changes.addMain(source);
+                    } else {
+                        changes.addMirror(source);
                     }
+                } else if (side == Side.MAIN) {
+                    changes.updateMain(source);
+                } else {
+                    changes.updateMirror(source);
+                }
+            }
+            resolved(id);
+            decided(changes, decision, side, id, mainHash, mirrorHash);
+        }
+        return skipped;
+    }
+
+    private Map<Long, HashedRow<T>> byId(Collection<T> rows) {
+        Map<Long, HashedRow<T>> result = new HashMap<>();
+        for (T row : rows) {
+            HashedRow<T> hashed = hashed(row);
+            result.put(hashed.getId(), hashed);
+        }
+        return result;
+    }
+
+    /**
+     * Splits IDs up to current max ID into partitions and synchronizes each of them on worker pool. Rows added while
+     * partitions are synchronized get IDs above max ID, so they are not seen by any partition.
+     *
+     * @param planning compute a plan of each partition instead of writing mutations
+     * @return flushed change sets of all partitions in order of ID
+     */
+    private List<ChangeSet<T>> syncPartitions(boolean fullScan, boolean planning) {
+        Long maxId = timed(Phase.LOAD_IDS, () -> getDataManager().maxKey());
+        if (maxId == null) {
+            return new ArrayList<>();
+        }
+        List<Long> sample = timed(Phase.LOAD_IDS,
+                () -> getDataManager().keySample(getSettings().getPartitionSampleSize()));
+        List<long[]> partitions = Partitions.split(sample, getSettings().getPartitions(), maxId);
+        logger.debug("IDs up to {} are split into {} partitions", maxId, partitions.size());
 
+        List<Future<ChangeSet<T>>> futures = new ArrayList<>(partitions.size());
+        for (long[] partition : partitions) {
+            futures.add(getExecutor().submit(() -> {
+                ChangeSet<T> changes = newChangeSet(planning ? new SyncPlan() : null);
+                if (fullScan) {
+                    merge(mainRows(partition[0], partition[1]), mirrorRows(partition[0], partition[1]), changes);
+                } else {
+                    mergeDivergentRanges(partition[0], partition[1], changes);
                 }
+                changes.flush();
+                return changes;
+            }));
+        }
 
-            } else if (mainIdOpt.isPresent()) {     //MIRROR is empty
-                Long id = mainIdOpt.get();
-                T mainRow = getDataManager().mainRow(id);
-                syncRow(id, mainRow,
-                        (r) -> {
-                            getDataManager().removeMainRow(r);
-                            logger.debug("- {} is removed from Main", mainRow);
-                        },
-                        (r) -> {
-                            getDataManager().addMirrorRow(r);
-                            logger.debug("+ {} is added to Mirror", mainRow);
-                        });
-                mainIndex++;
-
-            } else if (mirrorIdOpt.isPresent()) {   //MAIN is empty
-                Long id = mirrorIdOpt.get();
-                T mirrorRow = getDataManager().mirrorRow(id);
-                syncRow(id, mirrorRow,
-                        (r) -> {
-                            getDataManager().removeMirrorRow(r);
-                            logger.debug("- {} is removed from Mirror", mirrorRow);
-                        },
-                        (r) -> {
-                            getDataManager().addMainRow(r);
-                            logger.debug("+ {} is added to Main", mirrorRow);
-                        });
-                mirrorIndex++;
+        RuntimeException failure = null;
+        List<ChangeSet<T>> results = new ArrayList<>(futures.size());
+        for (Future<ChangeSet<T>> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Synchronization is interrupted", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new IllegalStateException("Partition synchronization failed", e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
     }
 
-    int size() {
-        return hashMap.size();
+    private void mergeDivergentRanges(long fromId, long toId, ChangeSet<T> changes) {
+        List<long[]> ranges = new ArrayList<>();
+        collectDivergentRanges(fromId, toId, 1, ranges);
+        logger.debug("{} divergent ID ranges are found in {}..{}", ranges.size(), fromId, toId);
+        mergeRanges(ranges, changes);
+    }
+
+    /**
+     * Merges divergent ranges of whole sources starting from their checksums fetched already as a single bucket.
+     */
+    private void mergeDivergentRanges(List<RangeChecksum> mainChecksums, List<RangeChecksum> mirrorChecksums,
+                                      ChangeSet<T> changes) {
+        List<long[]> ranges = new ArrayList<>();
+        collectDivergentRanges(mainChecksums, mirrorChecksums, ranges);
+        logger.debug("{} divergent ID ranges are found", ranges.size());
+        mergeRanges(ranges, changes);
+    }
+
+    private void mergeRanges(List<long[]> ranges, ChangeSet<T> changes) {
+        for (long[] range : ranges) {
+            merge(mainRows(range[0], range[1]), mirrorRows(range[0], range[1]), changes);
+        }
+    }
+
+    private ChangeSet<T> newChangeSet(SyncPlan plan) {
+        ChangeSet<T> changes = new ChangeSet<>(getDataManager(), getHashStore(), this::getId,
+                getSettings().getBatchSize(), getTransactionOperations(), quarantine(), plan,
+                isPipelined() ? getPipelineExecutor() : null);
+        stats.track(changes);
+        return changes;
+    }
+
+    /**
+     * Number of rows skipped by synchronization after failing to be written repeatedly.
+     */
+    int quarantined() {
+        return quarantine().size();
+    }
+
+    private Quarantine quarantine() {
+        if (quarantine == null) {
+            synchronized (this) {
+                if (quarantine == null) {
+                    int attempts = getSettings().getQuarantineAttempts();
+                    quarantine = new Quarantine(attempts, id -> {
+                        Long storedHash = getHashStore().contains(id) ? getHashStore().get(id) : null;
+                        getConflictHandler().handle(new Conflict(Conflict.Kind.QUARANTINE, getName(), id, 0, 0,
+                                storedHash, Instant.now()));
+                        getJournal().record(Decision.QUARANTINE, null, id, 0, 0);
+                        logger.error("! Row with ID: {} is quarantined after {} failed attempts, please resolve it "
+                                + "manually", id, attempts);
+                    });
+                }
+            }
+        }
+        return quarantine;
+    }
+
+    /**
+     * Compares bucket checksums of both sources within [fromId, toId] range and collects ID ranges of differing
+     * buckets, which are small enough to be merged row by row. Larger ones are split into buckets again.
+     */
+    private void collectDivergentRanges(long fromId, long toId, int buckets, List<long[]> ranges) {
+        Supplier<List<RangeChecksum>> mirrorChecksumList = prefetched(Phase.FETCH,
+                () -> getDataManager().mirrorChecksums(fromId, toId, buckets));
+        List<RangeChecksum> mainChecksumList = timed(Phase.FETCH,
+                () -> getDataManager().mainChecksums(fromId, toId, buckets));
+        collectDivergentRanges(mainChecksumList, mirrorChecksumList.get(), ranges);
+    }
+
+    private void collectDivergentRanges(List<RangeChecksum> mainChecksumList, List<RangeChecksum> mirrorChecksumList,
+                                        List<long[]> ranges) {
+        Map<Long, RangeChecksum> mainChecksums = byBucket(mainChecksumList);
+        Map<Long, RangeChecksum> mirrorChecksums = byBucket(mirrorChecksumList);
+
+        SortedSet<Long> allBuckets = new TreeSet<>(mainChecksums.keySet());
+        allBuckets.addAll(mirrorChecksums.keySet());
+
+        for (Long bucket : allBuckets) {
+            RangeChecksum main = mainChecksums.get(bucket);
+            RangeChecksum mirror = mirrorChecksums.get(bucket);
+            if (main != null && mirror != null && main.sameContent(mirror)) {
+                continue;
+            }
+            long minId = Math.min(main != null ? main.getMinId() : Long.MAX_VALUE,
+                    mirror != null ? mirror.getMinId() : Long.MAX_VALUE);
+            long maxId = Math.max(main != null ? main.getMaxId() : Long.MIN_VALUE,
+                    mirror != null ? mirror.getMaxId() : Long.MIN_VALUE);
+            long rowCount = Math.max(main != null ? main.getRowCount() : 0, mirror != null ? mirror.getRowCount() : 0);
+
+            if (rowCount <= getSettings().getRangeDiffLeafSize() || minId == maxId) {
+                ranges.add(new long[]{minId, maxId});
+            } else {
+                collectDivergentRanges(minId, maxId, getSettings().getRangeDiffFanout(), ranges);
+            }
+        }
+    }
+
+    private Map<Long, RangeChecksum> byBucket(List<RangeChecksum> checksums) {
+        Map<Long, RangeChecksum> result = new HashMap<>();
+        for (RangeChecksum checksum : checksums) {
+            result.put(checksum.getBucket(), checksum);
+        }
+        return result;
+    }
+
+    private Flux<HashedRow<T>> reactiveMainRows() {
+        return getSettings().isHashPushdown() && !migrating
+                ? getReactiveDataManager().mainHashes().map(this::hashed)
+                : getReactiveDataManager().mainRows().map(this::hashed);
+    }
+
+    private Flux<HashedRow<T>> reactiveMirrorRows() {
+        return getSettings().isHashPushdown() && !migrating
+                ? getReactiveDataManager().mirrorHashes().map(this::hashed)
+                : getReactiveDataManager().mirrorRows().map(this::hashed);
+    }
+
+    private Mono<Void> flushReactive(ChangeSet<T> changes) {
+        return Mono.<Void>fromRunnable(changes::flush).subscribeOn(getReactiveScheduler());
+    }
+
+    private void syncPair(SortedMerge.Pair<HashedRow<T>> pair, ChangeSet<T> changes) {
+        if (pair.getMain() != null && pair.getMirror() != null) {
+            syncRows(pair.getMain().getId(), pair.getMain(), pair.getMirror(), changes);
+        } else if (pair.getMain() != null) {
+            syncMainRow(pair.getMain().getId(), pair.getMain(), changes);
+        } else {
+            syncMirrorRow(pair.getMirror().getId(), pair.getMirror(), changes);
+        }
+    }
+
+    private Iterator<HashedRow<T>> mainRows() {
+        return getSettings().isHashPushdown() && !migrating
+                ? fetched(getDataManager().mainHashes(), this::hashed)
+                : fetched(getDataManager().mainRows(), this::hashed);
+    }
+
+    private Iterator<HashedRow<T>> mirrorRows() {
+        return getSettings().isHashPushdown() && !migrating
+                ? fetched(getDataManager().mirrorHashes(), this::hashed)
+                : fetched(getDataManager().mirrorRows(), this::hashed);
     }
 
-    private void syncRow(Long id, T row, Consumer<T> onRemove, Consumer<T> onAdd) {
-        String hash = calculateHash(row);
-        String storedHash = hashMap.get(id);
+    private Iterator<HashedRow<T>> mainRows(long fromId, long toId) {
+        return getSettings().isHashPushdown() && !migrating
+                ? fetched(getDataManager().mainHashes(fromId, toId), this::hashed)
+                : fetched(getDataManager().mainRows(fromId, toId), this::hashed);
+    }
+
+    private Iterator<HashedRow<T>> mirrorRows(long fromId, long toId) {
+        return getSettings().isHashPushdown() && !migrating
+                ? fetched(getDataManager().mirrorHashes(fromId, toId), this::hashed)
+                : fetched(getDataManager().mirrorRows(fromId, toId), this::hashed);
+    }
+
+    /**
+     * Merges two streams of rows ordered by ID and collects mutations needed to sync them. With pipeline, each stream
+     * is read and hashed ahead on its own stage.
+     */
+    private void merge(Iterator<HashedRow<T>> mainRows, Iterator<HashedRow<T>> mirrorRows, ChangeSet<T> changes) {
+        if (!isPipelined()) {
+            mergeRows(mainRows, mirrorRows, changes);
+            return;
+        }
+        try (ReadAheadIterator<HashedRow<T>> mainAhead = readAhead(mainRows);
+             ReadAheadIterator<HashedRow<T>> mirrorAhead = readAhead(mirrorRows)) {
+            mergeRows(mainAhead, mirrorAhead, changes);
+        }
+    }
+
+    private boolean isPipelined() {
+        return getSettings().getPipelineDepth() > 0 && getPipelineExecutor() != null;
+    }
+
+    private ReadAheadIterator<HashedRow<T>> readAhead(Iterator<HashedRow<T>> rows) {
+        return new ReadAheadIterator<>(rows, getPipelineExecutor(), getSettings().getPipelineChunkSize(),
+                getSettings().getPipelineDepth());
+    }
+
+    private void mergeRows(Iterator<HashedRow<T>> mainRows, Iterator<HashedRow<T>> mirrorRows,
+                           ChangeSet<T> changes) {
+        HashedRow<T> mainRow = next(mainRows);
+        HashedRow<T> mirrorRow = next(mirrorRows);
+
+        while (mainRow != null || mirrorRow != null) {
+
+            if (mainRow != null && mirrorRow != null) {
+                long mainId = mainRow.getId();
+                long mirrorId = mirrorRow.getId();
+
+                if (mainId == mirrorId) {
+                    syncRows(mainId, mainRow, mirrorRow, changes);
+                    mainRow = next(mainRows);
+                    mirrorRow = next(mirrorRows);
+
+                } else if (mainId > mirrorId) {     //row exists in MIRROR only
+                    syncMirrorRow(mirrorId, mirrorRow, changes);
+                    mirrorRow = next(mirrorRows);
 
-        if (hash.equals(storedHash)) {
+                } else {                            //row exists in MAIN only
+                    syncMainRow(mainId, mainRow, changes);
+                    mainRow = next(mainRows);
+                }
+
+            } else if (mainRow != null) {           //MIRROR is exhausted
+                syncMainRow(mainRow.getId(), mainRow, changes);
+                mainRow = next(mainRows);
+
+            } else {                                //MAIN is exhausted
+                syncMirrorRow(mirrorRow.getId(), mirrorRow, changes);
+                mirrorRow = next(mirrorRows);
+            }
+        }
+    }
+
+    private void syncRows(long id, HashedRow<T> mainRow, HashedRow<T> mirrorRow, ChangeSet<T> changes) {
+        if (quarantine().contains(id)) {
+            return;
+        }
+        long started = compareClock(changes);
+        long mainCalcHash = mainRow.getHash();
+        long mirrorCalcHash = mirrorRow.getHash();
+        boolean mainMatchStored = matchesStored(mainRow);
+        boolean mirrorMatchStored = matchesStored(mirrorRow);
+
+        if (mainCalcHash == mirrorCalcHash) {                          //rows are equal
+            if (!getHashStore().matches(id, mainCalcHash)) {
+                changes.putHash(id, mainCalcHash);
+            }
+            resolved(id);
+
+        } else if (!mainMatchStored && !mirrorMatchStored) {           //all hashes are different
+            if (changes.getPlan() != null) {
+                changes.getPlan().add(Decision.CONFLICT, null, id, mainCalcHash, mirrorCalcHash);
+            } else if (isNewConflict(id, mainCalcHash, mirrorCalcHash)) {
+                Long storedHash = getHashStore().contains(id) ? getHashStore().get(id) : null;
+                if (getConflictHandler().handle(new Conflict(getName(), id, mainCalcHash, mirrorCalcHash, storedHash,
+                        Instant.now()))) {
+                    conflicts.put(id, conflictFingerprint(mainCalcHash, mirrorCalcHash));
+                } else {
+                    resolved(id);
+                }
+                stats.conflict();
+                changes.removeHash(id);
+                getJournal().record(Decision.CONFLICT, null, id, mainCalcHash, mirrorCalcHash);
+            }
+
+        } else if (mainMatchStored && !mirrorMatchStored) {            //only main hash matches stored
+            changes.putHash(id, mirrorCalcHash);
+            changes.updateMain(mirrorRow);
+            decided(changes, Decision.UPDATE, Side.MAIN, id, mainCalcHash, mirrorCalcHash);
+
+        } else if (!mainMatchStored && mirrorMatchStored) {            //only mirror hash matches stored
+            changes.putHash(id, mainCalcHash);
+            changes.updateMirror(mainRow);
+            decided(changes, Decision.UPDATE, Side.MIRROR, id, mainCalcHash, mirrorCalcHash);
+        }
+        compared(changes, started);
+    }
+
+    private void syncMainRow(long id, HashedRow<T> mainRow, ChangeSet<T> changes) {
+        syncRow(id, mainRow, changes,
+                (r) -> {
+                    changes.removeMain(r);
+                    decided(changes, Decision.REMOVE, Side.MAIN, id, r.getHash(), 0);
+                },
+                (r) -> {
+                    changes.addMirror(r);
+                    decided(changes, Decision.ADD, Side.MIRROR, id, r.getHash(), 0);
+                });
+    }
+
+    private void syncMirrorRow(long id, HashedRow<T> mirrorRow, ChangeSet<T> changes) {
+        syncRow(id, mirrorRow, changes,
+                (r) -> {
+                    changes.removeMirror(r);
+                    decided(changes, Decision.REMOVE, Side.MIRROR, id, 0, r.getHash());
+                },
+                (r) -> {
+                    changes.addMain(r);
+                    decided(changes, Decision.ADD, Side.MAIN, id, 0, r.getHash());
+                });
+    }
+
+    /**
+     * Row exists in one source only. If its hash is stored, it was synced before and then removed from the other
+     * source, otherwise it is a new row.
+     */
+    private void syncRow(long id, HashedRow<T> row, ChangeSet<T> changes,
+                         Consumer<HashedRow<T>> onRemove, Consumer<HashedRow<T>> onAdd) {
+        if (quarantine().contains(id)) {
+            return;
+        }
+        long started = compareClock(changes);
+        long hash = row.getHash();
+        resolved(id);
+
+        if (matchesStored(row)) {
+            changes.removeHash(id);
             onRemove.accept(row);
-            hashMap.remove(id);
         } else {
+            changes.putHash(id, hash);
             onAdd.accept(row);
-            hashMap.put(id, hash);
         }
+        compared(changes, started);
     }
 
-    private boolean onlyMirrorHashMatchStored(String mainCalcHash, String mirrorCalcHash, String storedHash) {
-        return !mainCalcHash.equals(storedHash) && mirrorCalcHash.equals(storedHash);
+    /**
+     * Records decision to plan of change set, if it is computed, otherwise to journal.
+     */
+    private void decided(ChangeSet<T> changes, Decision decision, Side side, long id, long mainHash,
+                         long mirrorHash) {
+        if (changes.getPlan() != null) {
+            changes.getPlan().add(decision, side, id, mainHash, mirrorHash);
+        } else {
+            getJournal().record(decision, side, id, mainHash, mirrorHash);
+        }
     }
 
-    private boolean onlyMainHashMatchStored(String mainCalcHash, String mirrorCalcHash, String storedHash) {
-        return mainCalcHash.equals(storedHash) && !mirrorCalcHash.equals(storedHash);
+    /**
+     * Conflicts accepted by conflict handler are remembered, so each is handed to it once, until either row changes
+     * again. A dropped conflict is not remembered, so it is handed over again by next synchronization.
+     *
+     * @return false if the same conflict was already handed to conflict handler
+     */
+    private boolean isNewConflict(long id, long mainHash, long mirrorHash) {
+        Long previous = conflicts.get(id);
+        return previous == null || previous != conflictFingerprint(mainHash, mirrorHash);
     }
 
-    private boolean allHashesDifferent(String mainCalcHash, String mirrorCalcHash, String storedHash) {
-        return !mainCalcHash.equals(storedHash) && !mirrorCalcHash.equals(storedHash);
+    private long conflictFingerprint(long mainHash, long mirrorHash) {
+        return mainHash * 31 + mirrorHash;
     }
 
-    private Optional<Long> next(List<Long> list, int index) {
-        if (index < list.size()) {
-            return Optional.of(list.get(index));
+    private void resolved(long id) {
+        if (!conflicts.isEmpty()) {
+            conflicts.remove(id);
         }
-        return Optional.empty();
     }
 
-    private String calculateHash(T row) {
-        return getHashService().hash(row);
+    /**
+     * Current time minus time spent by change set flushes, so writing triggered while rows are compared is not
+     * counted as comparison.
+     */
+    private long compareClock(ChangeSet<T> changes) {
+        return System.nanoTime() - changes.getFlushNanos();
+    }
+
+    private void compared(ChangeSet<T> changes, long started) {
+        stats.time(Phase.COMPARE, compareClock(changes) - started);
+        stats.row();
+    }
+
+    private <R> R timed(Phase phase, Supplier<R> call) {
+        long started = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            stats.time(phase, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Starts a read of mirror source on pipeline executor, so it runs concurrently with the read of main source done
+     * on calling thread. Without pipeline, the read runs on calling thread once its result is taken.
+     *
+     * @return result of the read, taking it waits for the read to end and rethrows its failure
+     */
+    private <R> Supplier<R> prefetched(Phase phase, Supplier<R> read) {
+        if (!isPipelined()) {
+            return () -> timed(phase, read);
+        }
+        Future<R> future = getPipelineExecutor().submit(() -> timed(phase, read));
+        return () -> {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Prefetching of mirror source is interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new IllegalStateException("Prefetching of mirror source failed", e.getCause());
+            }
+        };
+    }
+
+    private HashedRow<T> next(Iterator<HashedRow<T>> rows) {
+        return rows.hasNext() ? rows.next() : null;
+    }
+
+    /**
+     * Checks whether row hash matches stored one. While migrating, legacy hash of row is checked as well.
+     */
+    private boolean matchesStored(HashedRow<T> row) {
+        if (getHashStore().matches(row.getId(), row.getHash())) {
+            return true;
+        }
+        return migrating && row.getRow() != null
+                && getHashStore().matches(row.getId(), getLegacyHashService().hash(row.getRow()));
+    }
+
+    private HashedRow<T> hashed(T row) {
+        long started = System.nanoTime();
+        long hash = getHashService().hash(row);
+        stats.time(Phase.HASH, System.nanoTime() - started);
+        return new HashedRow<>(getId(row), hash, row);
+    }
+
+    private HashedRow<T> hashed(RowHash rowHash) {
+        return new HashedRow<>(rowHash.getId(), rowHash.getHash(), null);
+    }
+
+    /**
+     * Maps rows read lazily from a source, time spent reading them is counted as fetch.
+     */
+    private <S> Iterator<HashedRow<T>> fetched(Iterator<S> source, Function<S, HashedRow<T>> mapper) {
+        return new Iterator<HashedRow<T>>() {
+            @Override
+            public boolean hasNext() {
+                long started = System.nanoTime();
+                boolean hasNext = source.hasNext();
+                stats.time(Phase.FETCH, System.nanoTime() - started);
+                return hasNext;
+            }
+
+            @Override
+            public HashedRow<T> next() {
+                long started = System.nanoTime();
+                S row = source.next();
+                stats.time(Phase.FETCH, System.nanoTime() - started);
+                return mapper.apply(row);
+            }
+        };
+    }
+
+    private static <S, R> Iterator<R> map(Iterator<S> source, Function<S, R> mapper) {
+        return new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return mapper.apply(source.next());
+            }
+        };
     }
 
 }
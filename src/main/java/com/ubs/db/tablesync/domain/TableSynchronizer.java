@@ -0,0 +1,256 @@
+package com.ubs.db.tablesync.domain;
+
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.TableDefinition;
+import com.ubs.db.tablesync.service.ConflictHandler;
+import com.ubs.db.tablesync.service.DataManager;
+import com.ubs.db.tablesync.service.HashService;
+import com.ubs.db.tablesync.service.ReactiveDataManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Synchronizer for a table pair of the registry. Maps generic row HashService, DataManager, ConflictHandler and
+ * HashStore of the table to base synchronization logic. Created per table by configuration, not a bean itself.
+ */
+public class TableSynchronizer extends Synchronizer<Row> {
+
+    private TableDefinition table;
+
+    private long intervalMillis;
+
+    private HashService<Row> hashService;
+
+    private DataManager<Long, Row> dataManager;
+
+    private ConflictHandler conflictHandler;
+
+    private HashStore hashStore;
+
+    private boolean migrateLegacyHashes;
+
+    private HashService<Row> legacyHashService;
+
+    private ExecutorService syncExecutor;
+
+    private PlatformTransactionManager transactionManager;
+
+    private PlatformTransactionManager mirrorTransactionManager;
+
+    private SyncSettings settings = new SyncSettings();
+
+    private SyncMetrics metrics = SyncMetrics.NONE;
+
+    private SyncJournal journal = SyncJournal.NONE;
+
+    private ExecutorService pipelineExecutor;
+
+    private ReactiveDataManager<Long, Row> reactiveDataManager;
+
+    private Scheduler reactiveScheduler;
+
+    public TableDefinition getTable() {
+        return table;
+    }
+
+    public void setTable(TableDefinition table) {
+        this.table = table;
+    }
+
+    @Override
+    public String getName() {
+        return table.getName();
+    }
+
+    /**
+     * @return delay between end of one synchronization and start of the next one
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void setHashService(HashService<Row> hashService) {
+        this.hashService = hashService;
+    }
+
+    public void setDataManager(DataManager<Long, Row> dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    public void setConflictHandler(ConflictHandler conflictHandler) {
+        this.conflictHandler = conflictHandler;
+    }
+
+    public void setHashStore(HashStore hashStore) {
+        this.hashStore = hashStore;
+    }
+
+    public void setMigrateLegacyHashes(boolean migrateLegacyHashes) {
+        this.migrateLegacyHashes = migrateLegacyHashes;
+    }
+
+    public void setLegacyHashService(HashService<Row> legacyHashService) {
+        this.legacyHashService = legacyHashService;
+    }
+
+    public void setSyncExecutor(ExecutorService syncExecutor) {
+        this.syncExecutor = syncExecutor;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Sets transaction manager of mirror tables, if they live in another database than main ones.
+     */
+    public void setMirrorTransactionManager(PlatformTransactionManager mirrorTransactionManager) {
+        this.mirrorTransactionManager = mirrorTransactionManager;
+    }
+
+    public void setSettings(SyncSettings settings) {
+        this.settings = settings;
+    }
+
+    public void setMetrics(SyncMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setJournal(SyncJournal journal) {
+        this.journal = journal;
+    }
+
+    public void setPipelineExecutor(ExecutorService pipelineExecutor) {
+        this.pipelineExecutor = pipelineExecutor;
+    }
+
+    public void setReactiveDataManager(ReactiveDataManager<Long, Row> reactiveDataManager) {
+        this.reactiveDataManager = reactiveDataManager;
+    }
+
+    public void setReactiveScheduler(Scheduler reactiveScheduler) {
+        this.reactiveScheduler = reactiveScheduler;
+    }
+
+    /**
+     * Closes HashStore and SyncJournal of the table.
+     */
+    public void close() {
+        hashStore.close();
+        journal.close();
+    }
+
+    @Override
+    DataManager<Long, Row> getDataManager() {
+        return this.dataManager;
+    }
+
+    @Override
+    HashService<Row> getHashService() {
+        return this.hashService;
+    }
+
+    @Override
+    ConflictHandler getConflictHandler() {
+        return this.conflictHandler;
+    }
+
+    @Override
+    HashStore getHashStore() {
+        return this.hashStore;
+    }
+
+    @Override
+    Long getId(Row row) {
+        return row.getKey();
+    }
+
+    @Override
+    SyncSettings getSettings() {
+        return this.settings;
+    }
+
+    @Override
+    HashService<Row> getLegacyHashService() {
+        return this.migrateLegacyHashes ? this.legacyHashService : null;
+    }
+
+    @Override
+    ExecutorService getExecutor() {
+        return this.syncExecutor;
+    }
+
+    /**
+     * With a separate mirror database, mirror transaction runs inside main one and is committed right before it.
+     * A failure of main commit after mirror commit leaves rows written to mirror only and is thrown as
+     * {@link MirrorOnlyCommitException}, so change set does not retry them. Their stored hashes are not changed, so
+     * next synchronization compares them again.
+     */
+    @Override
+    TransactionOperations getTransactionOperations() {
+        TransactionTemplate mainTransaction = newTransaction(this.transactionManager);
+        if (this.mirrorTransactionManager == null) {
+            return mainTransaction;
+        }
+        TransactionTemplate mirrorTransaction = newTransaction(this.mirrorTransactionManager);
+        return new TransactionOperations() {
+            @Override
+            public <R> R execute(TransactionCallback<R> action) {
+                boolean[] mirrorCommitted = new boolean[1];
+                try {
+                    return mainTransaction.execute(status -> {
+                        R result = mirrorTransaction.execute(action);
+                        mirrorCommitted[0] = true;
+                        return result;
+                    });
+                } catch (RuntimeException e) {
+                    if (mirrorCommitted[0]) {
+                        throw new MirrorOnlyCommitException(e);
+                    }
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private static TransactionTemplate newTransaction(PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
+    @Override
+    SyncMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    @Override
+    SyncJournal getJournal() {
+        return this.journal;
+    }
+
+    @Override
+    ExecutorService getPipelineExecutor() {
+        return this.pipelineExecutor;
+    }
+
+    @Override
+    ReactiveDataManager<Long, Row> getReactiveDataManager() {
+        return this.reactiveDataManager;
+    }
+
+    @Override
+    Scheduler getReactiveScheduler() {
+        return this.reactiveScheduler;
+    }
+}
@@ -0,0 +1,99 @@
+package com.ubs.db.tablesync.model;
+
+import java.time.Instant;
+
+/**
+ * Row, which synchronization cannot resolve and which has to be resolved manually.
+ */
+public class Conflict {
+
+    public enum Kind {
+        /**
+         * Row changed in both tables of a pair since it was synchronized, so neither row hash matches stored one.
+         */
+        CONFLICT,
+        /**
+         * Row failed to be written repeatedly and is skipped by synchronization, hashes of its rows are 0.
+         */
+        QUARANTINE
+    }
+
+    private final Kind kind;
+
+    private final String table;
+
+    private final long id;
+
+    private final long mainHash;
+
+    private final long mirrorHash;
+
+    private final Long storedHash;
+
+    private final Instant detectedAt;
+
+    /**
+     * @param table      name of table pair
+     * @param id         row ID
+     * @param mainHash   hash of main row
+     * @param mirrorHash hash of mirror row
+     * @param storedHash stored hash of row, null if none is stored
+     * @param detectedAt time the conflict was found
+     */
+    public Conflict(String table, long id, long mainHash, long mirrorHash, Long storedHash, Instant detectedAt) {
+        this(Kind.CONFLICT, table, id, mainHash, mirrorHash, storedHash, detectedAt);
+    }
+
+    /**
+     * @param kind       reason the row is not synchronized
+     * @param table      name of table pair
+     * @param id         row ID
+     * @param mainHash   hash of main row, 0 if not known
+     * @param mirrorHash hash of mirror row, 0 if not known
+     * @param storedHash stored hash of row, null if none is stored
+     * @param detectedAt time the row was found
+     */
+    public Conflict(Kind kind, String table, long id, long mainHash, long mirrorHash, Long storedHash,
+                    Instant detectedAt) {
+        this.kind = kind;
+        this.table = table;
+        this.id = id;
+        this.mainHash = mainHash;
+        this.mirrorHash = mirrorHash;
+        this.storedHash = storedHash;
+        this.detectedAt = detectedAt;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getMainHash() {
+        return mainHash;
+    }
+
+    public long getMirrorHash() {
+        return mirrorHash;
+    }
+
+    public Long getStoredHash() {
+        return storedHash;
+    }
+
+    public Instant getDetectedAt() {
+        return detectedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Conflict [" + kind + ", " + table + ", " + id + "]";
+    }
+}
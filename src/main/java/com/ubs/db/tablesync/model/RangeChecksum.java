@@ -0,0 +1,82 @@
+package com.ubs.db.tablesync.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Aggregated checksum of rows within a bucket of ID range. Checksum is a sum of row hashes, so it does not depend on
+ * row order and is equal for equal sets of rows.
+ */
+public class RangeChecksum {
+
+    private final long bucket;
+
+    private final long minId;
+
+    private final long maxId;
+
+    private final long rowCount;
+
+    private final BigDecimal checksum;
+
+    public RangeChecksum(long bucket, long minId, long maxId, long rowCount, BigDecimal checksum) {
+        this.bucket = bucket;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.rowCount = rowCount;
+        this.checksum = checksum;
+    }
+
+    public long getBucket() {
+        return bucket;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public BigDecimal getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Checks whether both buckets contain the same rows.
+     *
+     * @param other checksum of the same bucket from other source
+     * @return true if row count and checksum are equal
+     */
+    public boolean sameContent(RangeChecksum other) {
+        return rowCount == other.rowCount && checksum.compareTo(other.checksum) == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RangeChecksum)) {
+            return false;
+        }
+        RangeChecksum other = (RangeChecksum) o;
+        return bucket == other.bucket && minId == other.minId && maxId == other.maxId && sameContent(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucket, minId, maxId, rowCount, checksum.stripTrailingZeros());
+    }
+
+    @Override
+    public String toString() {
+        return "RangeChecksum [bucket=" + this.bucket + ", ids=" + this.minId + ".." + this.maxId
+                + ", rows=" + this.rowCount + ", checksum=" + this.checksum + "]";
+    }
+}
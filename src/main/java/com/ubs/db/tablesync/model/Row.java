@@ -0,0 +1,53 @@
+package com.ubs.db.tablesync.model;
+
+import java.util.Arrays;
+
+/**
+ * Generic row of a synchronized table. Values are ordered as columns of its {@link TableDefinition}, each column holds
+ * values of one Java type resolved from database metadata. Key is kept aside as primitive long.
+ */
+public class Row {
+
+    private final long key;
+
+    private final Object[] values;
+
+    public Row(long key, Object[] values) {
+        this.key = key;
+        this.values = values;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public Object getValue(int column) {
+        return values[column];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Row)) {
+            return false;
+        }
+        Row other = (Row) o;
+        return key == other.key && Arrays.deepEquals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(key) + Arrays.deepHashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return "Row " + Arrays.deepToString(values);
+    }
+}
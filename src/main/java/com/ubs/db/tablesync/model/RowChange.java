@@ -0,0 +1,77 @@
+package com.ubs.db.tablesync.model;
+
+/**
+ * Entry of a table change log: ID of a row changed by a statement and sequence number of the change.
+ */
+public class RowChange {
+
+    /**
+     * Kind of change, stored as its first letter.
+     */
+    public enum Operation {
+        INSERT, UPDATE, DELETE;
+
+        public static Operation of(String code) {
+            switch (code) {
+                case "I":
+                    return INSERT;
+                case "U":
+                    return UPDATE;
+                case "D":
+                    return DELETE;
+                default:
+                    throw new IllegalArgumentException("Unknown change operation: " + code);
+            }
+        }
+
+        public String code() {
+            return name().substring(0, 1);
+        }
+    }
+
+    private final long seq;
+
+    private final long id;
+
+    private final Operation operation;
+
+    public RowChange(long seq, long id, Operation operation) {
+        this.seq = seq;
+        this.id = id;
+        this.operation = operation;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowChange)) {
+            return false;
+        }
+        RowChange other = (RowChange) o;
+        return seq == other.seq && id == other.id && operation == other.operation;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(seq) + Long.hashCode(id)) + operation.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RowChange [seq=" + this.seq + ", id=" + this.id + ", operation=" + this.operation + "]";
+    }
+}
@@ -0,0 +1,46 @@
+package com.ubs.db.tablesync.model;
+
+/**
+ * ID of a row with its hash fingerprint calculated by database, used to compare rows without loading them.
+ */
+public class RowHash {
+
+    private final long id;
+
+    private final long hash;
+
+    public RowHash(long id, long hash) {
+        this.id = id;
+        this.hash = hash;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowHash)) {
+            return false;
+        }
+        RowHash other = (RowHash) o;
+        return id == other.id && hash == other.hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(id) + Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return "RowHash [id=" + this.id + ", hash=" + Long.toHexString(this.hash) + "]";
+    }
+}
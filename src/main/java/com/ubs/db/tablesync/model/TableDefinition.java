@@ -0,0 +1,113 @@
+package com.ubs.db.tablesync.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Synchronized pair of tables with the same structure. Rows are identified by numeric key column and compared by
+ * hash of hashed columns, which are also the columns copied between tables. Row values are ordered as hashed columns,
+ * key column goes first if it is not hashed.
+ */
+public class TableDefinition {
+
+    private final String name;
+
+    private final String mainTable;
+
+    private final String mirrorTable;
+
+    private final String keyColumn;
+
+    private final List<String> columns;
+
+    private final List<String> hashedColumns;
+
+    private final int keyIndex;
+
+    private final int[] hashedIndexes;
+
+    public TableDefinition(String name, String mainTable, String mirrorTable, String keyColumn,
+                           List<String> hashedColumns) {
+        if (hashedColumns.isEmpty()) {
+            throw new IllegalArgumentException("No hashed columns are defined for table " + name);
+        }
+        this.name = name;
+        this.mainTable = mainTable;
+        this.mirrorTable = mirrorTable;
+        this.keyColumn = keyColumn;
+        this.hashedColumns = Collections.unmodifiableList(new ArrayList<>(hashedColumns));
+
+        List<String> columns = new ArrayList<>(hashedColumns.size() + 1);
+        if (!containsIgnoreCase(hashedColumns, keyColumn)) {
+            columns.add(keyColumn);
+        }
+        columns.addAll(hashedColumns);
+        this.columns = Collections.unmodifiableList(columns);
+        this.keyIndex = indexOfIgnoreCase(columns, keyColumn);
+        this.hashedIndexes = new int[hashedColumns.size()];
+        for (int i = 0; i < hashedIndexes.length; i++) {
+            hashedIndexes[i] = columns.size() - hashedColumns.size() + i;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMainTable() {
+        return mainTable;
+    }
+
+    public String getMirrorTable() {
+        return mirrorTable;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * @return all columns of row in order of row values
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<String> getHashedColumns() {
+        return hashedColumns;
+    }
+
+    /**
+     * @return index of key column in row values
+     */
+    public int getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * @return indexes of hashed columns in row values, in order of hashing
+     */
+    public int[] getHashedIndexes() {
+        return hashedIndexes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "TableDefinition [name=" + this.name + ", main=" + this.mainTable + ", mirror=" + this.mirrorTable
+                + ", key=" + this.keyColumn + ", hashed=" + this.hashedColumns + "]";
+    }
+
+    private static boolean containsIgnoreCase(List<String> columns, String column) {
+        return indexOfIgnoreCase(columns, column) >= 0;
+    }
+
+    private static int indexOfIgnoreCase(List<String> columns, String column) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
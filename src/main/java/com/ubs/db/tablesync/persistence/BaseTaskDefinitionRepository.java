@@ -2,8 +2,8 @@ package com.ubs.db.tablesync.persistence;
 
 import com.ubs.db.tablesync.model.TaskDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 
 import java.util.List;
 
@@ -12,38 +12,50 @@ import java.util.List;
  */
 public abstract class BaseTaskDefinitionRepository {
 
+    private static final String COLUMNS = "id, name, description";
+
+    private static final RowMapper<TaskDefinition> ROW_MAPPER = (rs, i) ->
+            new TaskDefinition(rs.getLong(1), rs.getString(2), rs.getString(3));
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
     public abstract String getTableName();
 
+    /**
+     * JDBC template of database the table lives in.
+     */
+    protected JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
     public TaskDefinition findById(long id) {
-        return jdbcTemplate.queryForObject("SELECT * FROM " + getTableName() + " WHERE id=?", new Object[]{id},
-                new BeanPropertyRowMapper<>(TaskDefinition.class));
+        return getJdbcTemplate().queryForObject("SELECT " + COLUMNS + " FROM " + getTableName() + " WHERE id=?",
+                new Object[]{id}, ROW_MAPPER);
     }
 
     public TaskDefinition findByNameAndDescription(TaskDefinition task) {
-        return jdbcTemplate.queryForObject("SELECT * FROM " + getTableName() + " WHERE name=? AND description=?",
-                new Object[]{task.getName(), task.getDescription()},
-                new BeanPropertyRowMapper<>(TaskDefinition.class));
+        return getJdbcTemplate().queryForObject("SELECT " + COLUMNS + " FROM " + getTableName()
+                        + " WHERE name=? AND description=?",
+                new Object[]{task.getName(), task.getDescription()}, ROW_MAPPER);
     }
 
     public List<Long> findAllIds() {
-        return jdbcTemplate.query("SELECT id FROM " + getTableName() + " ORDER BY id ASC",
+        return getJdbcTemplate().query("SELECT id FROM " + getTableName() + " ORDER BY id ASC",
                 (rs, i) -> rs.getLong("id"));
     }
 
     public int insert(TaskDefinition task) {
-        return jdbcTemplate.update("INSERT INTO " + getTableName() + " (name, description) " + "values(?, ?)",
+        return getJdbcTemplate().update("INSERT INTO " + getTableName() + " (name, description) " + "values(?, ?)",
                 task.getName(), task.getDescription());
     }
 
     public int update(TaskDefinition task) {
-        return jdbcTemplate.update("UPDATE " + getTableName() + " SET name = ?, description = ? " + " where id = ?",
+        return getJdbcTemplate().update("UPDATE " + getTableName() + " SET name = ?, description = ? " + " where id = ?",
                 task.getName(), task.getDescription(), task.getId());
     }
 
     public int deleteById(long id) {
-        return jdbcTemplate.update("DELETE FROM " + getTableName() + " where id=?", id);
+        return getJdbcTemplate().update("DELETE FROM " + getTableName() + " where id=?", id);
     }
 }
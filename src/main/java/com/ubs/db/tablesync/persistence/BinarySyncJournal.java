@@ -0,0 +1,214 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.SyncJournal;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * SyncJournal appending fixed-size binary records to files in a directory. Each file starts with a header and each
+ * record has a checksum, so a record torn by a crash is detected by {@link SyncJournalReader}. A new file is started
+ * when the current one grows over size limit; old files are never deleted.
+ * <p>
+ * Records are collected into a pool of buffers. A full buffer, or a partially filled one on {@link #flush()}, is
+ * handed over to a writer thread, so sync threads do not wait for I/O unless all buffers are waiting to be written.
+ * Records buffered since the last flush are lost on crash.
+ */
+public class BinarySyncJournal implements SyncJournal {
+
+    static final String FILE_PREFIX = "sync-";
+
+    static final String FILE_SUFFIX = ".journal";
+
+    static final long MAGIC = 0x5453594e434a524eL;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    static final int RECORD_PAYLOAD_BYTES = Long.BYTES + 1 + 1 + 3 * Long.BYTES;
+
+    static final int RECORD_BYTES = RECORD_PAYLOAD_BYTES + Integer.BYTES;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path directory;
+
+    private final long maxFileBytes;
+
+    private final BlockingQueue<ByteBuffer> free;
+
+    private final BlockingQueue<ByteBuffer> full;
+
+    private final CRC32 crc = new CRC32();
+
+    private final Thread writer;
+
+    private ByteBuffer current;
+
+    private volatile boolean closed;
+
+    private FileChannel file;
+
+    private long fileBytes;
+
+    /**
+     * @param directory    directory for journal files
+     * @param bufferBytes  size of each buffer, rounded down to whole records
+     * @param buffers      number of buffers, at least 2
+     * @param maxFileBytes size, after which a new file is started
+     * @throws IOException if directory cannot be created
+     */
+    public BinarySyncJournal(Path directory, int bufferBytes, int buffers, long maxFileBytes) throws IOException {
+        if (buffers < 2 || bufferBytes < RECORD_BYTES) {
+            throw new IllegalArgumentException("Sync journal needs at least 2 buffers of " + RECORD_BYTES + " bytes");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.full = new ArrayBlockingQueue<>(buffers);
+        for (int i = 1; i < buffers; i++) {
+            free.add(ByteBuffer.allocate(bufferBytes / RECORD_BYTES * RECORD_BYTES));
+        }
+        this.current = ByteBuffer.allocate(bufferBytes / RECORD_BYTES * RECORD_BYTES);
+        this.writer = new Thread(this::writeBuffers, "sync-journal-" + directory.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public synchronized void record(Decision decision, Side side, long id, long mainHash, long mirrorHash) {
+        if (closed) {
+            return;
+        }
+        int start = current.position();
+        current.putLong(System.currentTimeMillis())
+                .put((byte) decision.ordinal())
+                .put(side == null ? 0 : (byte) (side.ordinal() + 1))
+                .putLong(id)
+                .putLong(mainHash)
+                .putLong(mirrorHash);
+        crc.reset();
+        crc.update(current.array(), start, RECORD_PAYLOAD_BYTES);
+        current.putInt((int) crc.getValue());
+        if (!current.hasRemaining()) {
+            handOver();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!closed && current.position() > 0) {
+            handOver();
+        }
+    }
+
+    /**
+     * Hands over buffered records and waits until the writer thread writes them and closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            flush();
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOver() {
+        full.add(current);
+        try {
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            current = ByteBuffer.allocate(current.capacity());
+            logger.warn("Sync journal buffer is allocated on interrupt, journal may use more memory than configured");
+        }
+    }
+
+    private void writeBuffers() {
+        try {
+            while (!closed || !full.isEmpty()) {
+                ByteBuffer buffer = full.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (buffer != null) {
+                    write(buffer);
+                    buffer.clear();
+                    free.add(buffer);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            if (file == null || fileBytes >= maxFileBytes) {
+                nextFile();
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                fileBytes += file.write(buffer);
+            }
+            if (full.isEmpty()) {
+                file.force(false);
+            }
+        } catch (IOException e) {
+            logger.error("{} sync journal records cannot be written to {}", buffer.limit() / RECORD_BYTES,
+                    directory, e);
+            closeFile();
+        }
+    }
+
+    private void nextFile() throws IOException {
+        closeFile();
+        //files are named after creation time, so they sort in order of records
+        long created = System.currentTimeMillis();
+        Path path = directory.resolve(FILE_PREFIX + created + FILE_SUFFIX);
+        while (Files.exists(path)) {
+            path = directory.resolve(FILE_PREFIX + ++created + FILE_SUFFIX);
+        }
+        file = FileChannel.open(path, CREATE_NEW, WRITE, APPEND);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            file.write(header);
+        }
+        fileBytes = HEADER_BYTES;
+    }
+
+    private void closeFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            logger.warn("Sync journal file in {} cannot be closed", directory, e);
+        }
+        file = null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.model.RowChange;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * H2 row trigger, which appends ID of each inserted, updated or deleted row to change log table of its table. Change
+ * log table is named after the table with {@code _CHANGE_LOG} suffix. Key column is the single primary key column
+ * of the table, or ID column, if table has no primary key. An update, which changes key, is logged as delete and
+ * insert.
+ */
+public class ChangeLogTrigger implements Trigger {
+
+    static final String CHANGE_LOG_SUFFIX = "_change_log";
+
+    private String insertSql;
+
+    private int keyIndex;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) throws SQLException {
+        this.insertSql = "INSERT INTO \"" + schemaName + "\".\"" + tableName + CHANGE_LOG_SUFFIX.toUpperCase()
+                + "\" (row_id, op) VALUES (?, ?)";
+        this.keyIndex = keyIndex(conn.getMetaData(), schemaName, tableName);
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow == null) {
+            log(conn, key(newRow), RowChange.Operation.INSERT);
+        } else if (newRow == null) {
+            log(conn, key(oldRow), RowChange.Operation.DELETE);
+        } else if (key(oldRow) == key(newRow)) {
+            log(conn, key(newRow), RowChange.Operation.UPDATE);
+        } else {
+            log(conn, key(oldRow), RowChange.Operation.DELETE);
+            log(conn, key(newRow), RowChange.Operation.INSERT);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+
+    private void log(Connection conn, long id, RowChange.Operation operation) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            ps.setLong(1, id);
+            ps.setString(2, operation.code());
+            ps.executeUpdate();
+        }
+    }
+
+    private long key(Object[] row) {
+        return ((Number) row[keyIndex]).longValue();
+    }
+
+    private static int keyIndex(DatabaseMetaData metaData, String schemaName, String tableName) throws SQLException {
+        String keyColumn = null;
+        try (ResultSet rs = metaData.getPrimaryKeys(null, schemaName, tableName)) {
+            if (rs.next()) {
+                keyColumn = rs.getString("COLUMN_NAME");
+                if (rs.next()) {
+                    throw new SQLException("Change log needs single key column, " + tableName + " has composite one");
+                }
+            }
+        }
+        try (ResultSet rs = metaData.getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                String column = rs.getString("COLUMN_NAME");
+                if (keyColumn == null ? "ID".equalsIgnoreCase(column) : keyColumn.equals(column)) {
+                    return rs.getInt("ORDINAL_POSITION") - 1;
+                }
+            }
+        }
+        throw new SQLException("Key column of " + tableName + " is not found for change log");
+    }
+}
@@ -0,0 +1,209 @@
+package com.ubs.db.tablesync.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Java representation of a column value, resolved once from JDBC type of column. Values are read with typed getters,
+ * so each column always holds values of the same Java type, the one database passes to ROW_HASH function.
+ */
+public enum ColumnType {
+
+    BIGINT(Types.BIGINT) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            long value = rs.getLong(index);
+            return rs.wasNull() ? null : value;
+        }
+
+        @Override
+        void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setLong(index, ((Number) value).longValue());
+        }
+    },
+
+    INTEGER(Types.INTEGER) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            int value = rs.getInt(index);
+            return rs.wasNull() ? null : value;
+        }
+
+        @Override
+        void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setInt(index, ((Number) value).intValue());
+        }
+    },
+
+    DOUBLE(Types.DOUBLE) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            double value = rs.getDouble(index);
+            return rs.wasNull() ? null : value;
+        }
+
+        @Override
+        void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setDouble(index, ((Number) value).doubleValue());
+        }
+    },
+
+    BOOLEAN(Types.BOOLEAN) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            boolean value = rs.getBoolean(index);
+            return rs.wasNull() ? null : value;
+        }
+
+        @Override
+        void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setBoolean(index, (Boolean) value);
+        }
+    },
+
+    DECIMAL(Types.DECIMAL) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getBigDecimal(index);
+        }
+    },
+
+    STRING(Types.VARCHAR) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getString(index);
+        }
+
+        @Override
+        void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setString(index, (String) value);
+        }
+    },
+
+    DATE(Types.DATE) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getDate(index);
+        }
+    },
+
+    TIME(Types.TIME) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getTime(index);
+        }
+    },
+
+    TIMESTAMP(Types.TIMESTAMP) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getTimestamp(index);
+        }
+    },
+
+    BINARY(Types.VARBINARY) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getBytes(index);
+        }
+
+        @Override
+        void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setBytes(index, (byte[]) value);
+        }
+    },
+
+    OBJECT(Types.OTHER) {
+        @Override
+        Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getObject(index);
+        }
+    };
+
+    private final int sqlType;
+
+    ColumnType(int sqlType) {
+        this.sqlType = sqlType;
+    }
+
+    /**
+     * @param sqlType JDBC type of column, one of {@link Types}
+     * @return column type, OBJECT for types without own representation
+     */
+    public static ColumnType of(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+                return BIGINT;
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return INTEGER;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return DOUBLE;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return BOOLEAN;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DECIMAL;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+                return STRING;
+            case Types.DATE:
+                return DATE;
+            case Types.TIME:
+                return TIME;
+            case Types.TIMESTAMP:
+                return TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BINARY;
+            default:
+                return OBJECT;
+        }
+    }
+
+    public boolean isIntegral() {
+        return this == BIGINT || this == INTEGER;
+    }
+
+    /**
+     * Reads column value of current row.
+     *
+     * @param rs    result set
+     * @param index 1-based index of column in result set
+     * @return column value or null
+     * @throws SQLException if value cannot be read
+     */
+    abstract Object read(ResultSet rs, int index) throws SQLException;
+
+    /**
+     * Binds column value to statement parameter.
+     *
+     * @param ps    statement
+     * @param index 1-based index of parameter
+     * @param value column value or null
+     * @throws SQLException if value cannot be bound
+     */
+    void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            bindValue(ps, index, value);
+        }
+    }
+
+    void bindValue(PreparedStatement ps, int index, Object value) throws SQLException {
+        ps.setObject(index, value);
+    }
+}
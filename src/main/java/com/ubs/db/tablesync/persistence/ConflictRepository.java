@@ -0,0 +1,45 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.model.Conflict;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+
+/**
+ * Repository of conflicts and quarantined rows found by synchronization of all table pairs.
+ */
+@Repository
+public class ConflictRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO sync_conflict "
+            + "(table_name, row_id, main_hash, mirror_hash, stored_hash, detected_at, kind) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int[][] batchInsert(Collection<Conflict> conflicts) {
+        return jdbcTemplate.batchUpdate(INSERT_SQL, conflicts, conflicts.size(), (ps, conflict) -> {
+            ps.setString(1, conflict.getTable());
+            ps.setLong(2, conflict.getId());
+            ps.setLong(3, conflict.getMainHash());
+            ps.setLong(4, conflict.getMirrorHash());
+            if (conflict.getStoredHash() != null) {
+                ps.setLong(5, conflict.getStoredHash());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            ps.setTimestamp(6, Timestamp.from(conflict.getDetectedAt()));
+            ps.setString(7, conflict.getKind().name());
+        });
+    }
+
+    public long countByTable(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sync_conflict WHERE table_name = ?",
+                Long.class, table);
+    }
+}
@@ -0,0 +1,339 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.HashStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * HashStore persisted to a directory, so hash state survives restarts. Wraps in-memory store and keeps on disk:
+ * <ul>
+ * <li>snapshot file with all entries, which is written and read through memory mapping;</li>
+ * <li>append-only journal of put and remove operations made after the snapshot.</li>
+ * </ul>
+ * Journal is forced to disk on {@link #flush()}. Each journal record has a checksum, so a record torn by a crash is
+ * detected and dropped on load. When journal grows over compaction threshold, a new snapshot is written to a temporary
+ * file, atomically moved over the old one and journal is truncated.
+ */
+public class JournaledHashStore implements HashStore {
+
+    private static final String SNAPSHOT_FILE = "hash-store.snapshot";
+
+    private static final String JOURNAL_FILE = "hash-store.journal";
+
+    private static final long MAGIC = 0x5453594e43485348L;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    private static final int RECORD_PAYLOAD_BYTES = 1 + 2 * Long.BYTES;
+
+    private static final int RECORD_BYTES = RECORD_PAYLOAD_BYTES + Integer.BYTES;
+
+    private static final long MAP_WINDOW_BYTES = 1L << 27;
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final HashStore store;
+
+    private final Path snapshotFile;
+
+    private final Path journalFile;
+
+    private final long compactionThreshold;
+
+    private final FileChannel journal;
+
+    private final ByteBuffer journalBuffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+
+    private final CRC32 crc = new CRC32();
+
+    private long journalRecords;
+
+    /**
+     * Opens store in given directory, loading snapshot and replaying journal, if they exist.
+     *
+     * @param directory           directory for snapshot and journal files
+     * @param storeFactory        creates in-memory store for expected number of entries
+     * @param compactionThreshold number of journal records, after which snapshot is rewritten
+     * @throws IOException if files cannot be read or created
+     */
+    public JournaledHashStore(Path directory, IntFunction<HashStore> storeFactory, long compactionThreshold)
+            throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.journalFile = directory.resolve(JOURNAL_FILE);
+        this.compactionThreshold = compactionThreshold;
+
+        long started = System.currentTimeMillis();
+        this.store = loadSnapshot(storeFactory);
+        this.journal = FileChannel.open(journalFile, CREATE, READ, WRITE);
+        replayJournal();
+        logger.info("Hash store with {} entries is loaded from {} in {} ms", store.size(), directory,
+                System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public synchronized boolean contains(long id) {
+        return store.contains(id);
+    }
+
+    @Override
+    public synchronized boolean matches(long id, long hash) {
+        return store.matches(id, hash);
+    }
+
+    @Override
+    public synchronized long get(long id) {
+        return store.get(id);
+    }
+
+    @Override
+    public synchronized void put(long id, long hash) {
+        store.put(id, hash);
+        append(PUT, id, hash);
+    }
+
+    @Override
+    public synchronized void remove(long id) {
+        store.remove(id);
+        append(REMOVE, id, 0);
+    }
+
+    @Override
+    public synchronized int size() {
+        return store.size();
+    }
+
+    @Override
+    public synchronized void forEach(EntryConsumer consumer) {
+        store.forEach(consumer);
+    }
+
+    /**
+     * Forces journal to disk and compacts it into snapshot if it is over compaction threshold.
+     */
+    @Override
+    public synchronized void flush() {
+        try {
+            writeJournalBuffer();
+            journal.force(false);
+            if (journalRecords >= compactionThreshold) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Hash store journal cannot be written: " + journalFile, e);
+        }
+    }
+
+    /**
+     * Writes all entries to a new snapshot and truncates journal.
+     */
+    public synchronized void compact() {
+        try {
+            writeJournalBuffer();
+            long started = System.currentTimeMillis();
+            writeSnapshot();
+            journal.truncate(0);
+            journal.position(0);
+            journal.force(true);
+            journalRecords = 0;
+            logger.info("Hash store with {} entries is compacted in {} ms", store.size(),
+                    System.currentTimeMillis() - started);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Hash store snapshot cannot be written: " + snapshotFile, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (journalRecords > 0 || journalBuffer.position() > 0) {
+                compact();
+            }
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Hash store journal cannot be closed: " + journalFile, e);
+        }
+        store.close();
+    }
+
+    private HashStore loadSnapshot(IntFunction<HashStore> storeFactory) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return storeFactory.apply(0);
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Hash store snapshot is truncated: " + snapshotFile);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Hash store snapshot has unknown format: " + snapshotFile);
+            }
+            long count = header.getLong();
+            if (fileSize != HEADER_BYTES + count * ENTRY_BYTES) {
+                throw new IOException("Hash store snapshot is truncated: " + snapshotFile);
+            }
+
+            HashStore loaded = storeFactory.apply((int) Math.min(count, Integer.MAX_VALUE));
+            for (long position = HEADER_BYTES; position < fileSize; position += MAP_WINDOW_BYTES) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_WINDOW_BYTES, fileSize - position));
+                while (window.hasRemaining()) {
+                    loaded.put(window.getLong(), window.getLong());
+                }
+            }
+            return loaded;
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path tempFile = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        long count = store.size();
+        try (FileChannel channel = FileChannel.open(tempFile, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putLong(MAGIC).putInt(VERSION).putLong(count);
+            header.force();
+
+            SnapshotWriter writer = new SnapshotWriter(channel, HEADER_BYTES + count * ENTRY_BYTES);
+            store.forEach(writer);
+            writer.finish();
+            channel.force(true);
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void replayJournal() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+        long validEnd = 0;
+        boolean torn = false;
+        journal.position(0);
+
+        while (!torn && journal.read(buffer) > 0) {
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_BYTES) {
+                int start = buffer.position();
+                crc.reset();
+                crc.update(buffer.array(), start, RECORD_PAYLOAD_BYTES);
+                byte op = buffer.get();
+                long id = buffer.getLong();
+                long hash = buffer.getLong();
+                if (buffer.getInt() != (int) crc.getValue() || (op != PUT && op != REMOVE)) {
+                    torn = true;
+                    break;
+                }
+                if (op == PUT) {
+                    store.put(id, hash);
+                } else {
+                    store.remove(id);
+                }
+                validEnd += RECORD_BYTES;
+                journalRecords++;
+            }
+            buffer.compact();
+        }
+
+        if (validEnd < journal.size()) {
+            logger.warn("Hash store journal has {} bytes of incomplete records, they are dropped",
+                    journal.size() - validEnd);
+            journal.truncate(validEnd);
+        }
+        journal.position(validEnd);
+    }
+
+    private void append(byte op, long id, long hash) {
+        if (journalBuffer.remaining() < RECORD_BYTES) {
+            try {
+                writeJournalBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Hash store journal cannot be written: " + journalFile, e);
+            }
+        }
+        int start = journalBuffer.position();
+        journalBuffer.put(op).putLong(id).putLong(hash);
+        crc.reset();
+        crc.update(journalBuffer.array(), start, RECORD_PAYLOAD_BYTES);
+        journalBuffer.putInt((int) crc.getValue());
+        journalRecords++;
+    }
+
+    private void writeJournalBuffer() throws IOException {
+        journalBuffer.flip();
+        while (journalBuffer.hasRemaining()) {
+            journal.write(journalBuffer);
+        }
+        journalBuffer.clear();
+    }
+
+    /**
+     * Writes entries to snapshot file through memory mapped windows.
+     */
+    private static class SnapshotWriter implements EntryConsumer {
+
+        private final FileChannel channel;
+
+        private final long fileSize;
+
+        private long position = HEADER_BYTES;
+
+        private MappedByteBuffer window;
+
+        SnapshotWriter(FileChannel channel, long fileSize) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+        }
+
+        @Override
+        public void accept(long id, long hash) {
+            try {
+                if (window == null || !window.hasRemaining()) {
+                    nextWindow();
+                }
+                window.putLong(id).putLong(hash);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (window != null) {
+                window.force();
+            }
+            if (position != fileSize || channel.size() != fileSize) {
+                throw new IOException("Hash store snapshot size does not match number of entries");
+            }
+        }
+
+        private void nextWindow() throws IOException {
+            if (window != null) {
+                window.force();
+            }
+            long size = Math.min(MAP_WINDOW_BYTES, fileSize - position);
+            window = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+            position += size;
+        }
+    }
+}
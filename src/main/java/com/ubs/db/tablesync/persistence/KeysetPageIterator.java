@@ -0,0 +1,83 @@
+package com.ubs.db.tablesync.persistence;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Iterator over rows ordered by key, which loads rows page by page using keyset pagination
+ * (WHERE key > last seen key ORDER BY key LIMIT page size). Keeps at most one page in memory.
+ *
+ * @param <T> row type
+ */
+public class KeysetPageIterator<T> implements Iterator<T> {
+
+    /**
+     * Loads a page of rows with keys greater than given one, ordered by key.
+     *
+     * @param <T> row type
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+
+        List<T> load(long afterKey, int limit);
+    }
+
+    private final PageLoader<T> pageLoader;
+
+    private final ToLongFunction<T> keyExtractor;
+
+    private final int pageSize;
+
+    private List<T> page = Collections.emptyList();
+
+    private int index;
+
+    private long lastKey;
+
+    private boolean exhausted;
+
+    public KeysetPageIterator(PageLoader<T> pageLoader, ToLongFunction<T> keyExtractor, int pageSize) {
+        this(pageLoader, keyExtractor, pageSize, Long.MIN_VALUE);
+    }
+
+    public KeysetPageIterator(PageLoader<T> pageLoader, ToLongFunction<T> keyExtractor, int pageSize, long afterKey) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageLoader = pageLoader;
+        this.keyExtractor = keyExtractor;
+        this.pageSize = pageSize;
+        this.lastKey = afterKey;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < page.size()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        page = pageLoader.load(lastKey, pageSize);
+        index = 0;
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (page.isEmpty()) {
+            return false;
+        }
+        lastKey = keyExtractor.applyAsLong(page.get(page.size() - 1));
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+}
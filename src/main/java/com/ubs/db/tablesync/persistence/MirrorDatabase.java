@@ -0,0 +1,61 @@
+package com.ubs.db.tablesync.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Database of mirror tables. Either the application database, or a database on another server with its own connection
+ * pool and transaction manager, so reads of both sides do not compete for connections.
+ */
+public class MirrorDatabase {
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final boolean separate;
+
+    /**
+     * @param dataSource         data source of mirror tables
+     * @param jdbcTemplate       JDBC template of the data source
+     * @param transactionManager transaction manager of the data source
+     * @param separate           whether the data source is owned by mirror database and closed with it
+     */
+    public MirrorDatabase(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager, boolean separate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.separate = separate;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * @return whether mirror tables live in another database than main ones
+     */
+    public boolean isSeparate() {
+        return separate;
+    }
+
+    /**
+     * Closes connection pool of a separate mirror database.
+     */
+    public void close() throws IOException {
+        if (separate && dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
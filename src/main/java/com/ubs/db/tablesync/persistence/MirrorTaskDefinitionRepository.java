@@ -1,6 +1,8 @@
 package com.ubs.db.tablesync.persistence;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -12,8 +14,16 @@ public class MirrorTaskDefinitionRepository extends BaseTaskDefinitionRepository
     @Value("${tableSync.mirrorTableName}")
     private String mirrorTableName;
 
+    @Autowired
+    private MirrorDatabase mirrorDatabase;
+
     @Override
     public String getTableName() {
         return mirrorTableName;
     }
+
+    @Override
+    protected JdbcTemplate getJdbcTemplate() {
+        return mirrorDatabase.getJdbcTemplate();
+    }
 }
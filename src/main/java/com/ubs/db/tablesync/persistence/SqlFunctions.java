@@ -0,0 +1,32 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.domain.HashInput;
+import org.h2.value.Value;
+
+/**
+ * Java functions registered in database with CREATE ALIAS, so they can be evaluated next to the data.
+ */
+public final class SqlFunctions {
+
+    private static final ThreadLocal<HashInput> INPUT = ThreadLocal.withInitial(HashInput::new);
+
+    private SqlFunctions() {
+    }
+
+    /**
+     * Hash of column values, equal to hash calculated by RowHashService with the same algorithm. Values are taken as
+     * database values, because H2 would convert arguments of Object type to serialized Java objects.
+     *
+     * @param algorithm name of {@link HashAlgorithm}
+     * @param values    values of hashed columns in order of hashing
+     * @return hash
+     */
+    public static long rowHash(String algorithm, Value... values) {
+        HashInput input = INPUT.get().reset();
+        for (Value value : values) {
+            input.putValue(value == null ? null : value.getObject());
+        }
+        return HashAlgorithm.valueOf(algorithm).hash(input);
+    }
+}
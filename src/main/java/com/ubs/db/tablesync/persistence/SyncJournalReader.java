@@ -0,0 +1,175 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.SyncJournal.Decision;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.FILE_PREFIX;
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.FILE_SUFFIX;
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.HEADER_BYTES;
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.MAGIC;
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.RECORD_BYTES;
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.RECORD_PAYLOAD_BYTES;
+import static com.ubs.db.tablesync.persistence.BinarySyncJournal.VERSION;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads files written by {@link BinarySyncJournal}. Reading of a file stops at the first record with wrong checksum,
+ * which can only be the last one, torn by a crash.
+ * <p>
+ * Can be run from command line to print journal as text, one line per record:
+ * <pre>
+ * java -cp &lt;classpath&gt; com.ubs.db.tablesync.persistence.SyncJournalReader &lt;file or directory&gt; [row ID]
+ * </pre>
+ */
+public class SyncJournalReader {
+
+    private static final Decision[] DECISIONS = Decision.values();
+
+    private static final Side[] SIDES = Side.values();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: SyncJournalReader <journal file or directory> [row ID]");
+            System.exit(1);
+        }
+        Long id = args.length > 1 ? Long.valueOf(args[1]) : null;
+        read(Paths.get(args[0]), entry -> {
+            if (id == null || entry.getId() == id) {
+                System.out.println(entry);
+            }
+        });
+    }
+
+    /**
+     * Passes all records of a journal file, or of all journal files in a directory in order they were written, to
+     * consumer.
+     *
+     * @param path     journal file or directory
+     * @param consumer consumer of records
+     * @throws IOException if a file cannot be read or has unknown format
+     */
+    public static void read(Path path, Consumer<Entry> consumer) throws IOException {
+        if (!Files.isDirectory(path)) {
+            readFile(path, consumer);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(path)) {
+            files = list.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            readFile(file, consumer);
+        }
+    }
+
+    private static void readFile(Path file, Consumer<Entry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Sync journal has unknown format: " + file);
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_BYTES) {
+                    int start = buffer.position();
+                    crc.reset();
+                    crc.update(buffer.array(), start, RECORD_PAYLOAD_BYTES);
+                    long millis = buffer.getLong();
+                    int decision = buffer.get();
+                    int side = buffer.get();
+                    long id = buffer.getLong();
+                    long mainHash = buffer.getLong();
+                    long mirrorHash = buffer.getLong();
+                    if (buffer.getInt() != (int) crc.getValue()
+                            || decision < 0 || decision >= DECISIONS.length || side < 0 || side > SIDES.length) {
+                        return;
+                    }
+                    consumer.accept(new Entry(Instant.ofEpochMilli(millis), DECISIONS[decision],
+                            side == 0 ? null : SIDES[side - 1], id, mainHash, mirrorHash));
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    /**
+     * Decision recorded in sync journal.
+     */
+    public static class Entry {
+
+        private final Instant time;
+
+        private final Decision decision;
+
+        private final Side side;
+
+        private final long id;
+
+        private final long mainHash;
+
+        private final long mirrorHash;
+
+        Entry(Instant time, Decision decision, Side side, long id, long mainHash, long mirrorHash) {
+            this.time = time;
+            this.decision = decision;
+            this.side = side;
+            this.id = id;
+            this.mainHash = mainHash;
+            this.mirrorHash = mirrorHash;
+        }
+
+        public Instant getTime() {
+            return time;
+        }
+
+        public Decision getDecision() {
+            return decision;
+        }
+
+        /**
+         * @return source the row is written to, null for conflicts and quarantined rows
+         */
+        public Side getSide() {
+            return side;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getMainHash() {
+            return mainHash;
+        }
+
+        public long getMirrorHash() {
+            return mirrorHash;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %-10s %-6s %d main=%016x mirror=%016x", time, decision,
+                    side == null ? "" : side, id, mainHash, mirrorHash);
+        }
+    }
+}
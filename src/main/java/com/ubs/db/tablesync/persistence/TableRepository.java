@@ -0,0 +1,512 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.domain.IdSet;
+import com.ubs.db.tablesync.model.RangeChecksum;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.RowChange;
+import com.ubs.db.tablesync.model.RowHash;
+import com.ubs.db.tablesync.model.TableDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Repository of generic rows of one table of synchronized pair. SQL is built once from columns of table definition.
+ * Column types are read once from database metadata on first use, then rows are mapped and bound with typed JDBC
+ * getters and setters of each column.
+ */
+public class TableRepository {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String tableName;
+
+    private final TableDefinition table;
+
+    private final int pageSize;
+
+    private final int batchSize;
+
+    private final String selectIdsSql;
+
+    private final String selectMaxIdSql;
+
+    private final String countSql;
+
+    private final String selectIdSampleSql;
+
+    private final String selectByIdsSql;
+
+    private final String orderByIdSql;
+
+    private final String selectPageSql;
+
+    private final String selectHashPageSql;
+
+    private final String checksumAggregatesSql;
+
+    private final String insertSql;
+
+    private final String updateSql;
+
+    private final String deleteSql;
+
+    private final String selectLastChangeSeqSql;
+
+    private final String selectChangesSql;
+
+    private final String deleteChangesSql;
+
+    private final String changeLogTable;
+
+    private volatile ColumnType[] columnTypes;
+
+    private RowMapper<Row> rowMapper;
+
+    /**
+     * @param jdbcTemplate  JDBC template of table data source
+     * @param tableName     name of table, main or mirror one of table definition
+     * @param table         table definition
+     * @param pageSize      number of rows loaded per query while streaming
+     * @param batchSize     number of statements per JDBC batch
+     * @param hashAlgorithm algorithm of row hashes calculated by database
+     * @param versionColumn column with version increased by each insert and update, which is used as change sequence
+     *                      number instead of change log table, null if table has no such column
+     */
+    public TableRepository(JdbcTemplate jdbcTemplate, String tableName, TableDefinition table, int pageSize,
+                           int batchSize, HashAlgorithm hashAlgorithm, String versionColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableName = tableName;
+        this.table = table;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        String keyColumn = table.getKeyColumn();
+        String columnList = String.join(", ", table.getColumns());
+        String rowHash = "ROW_HASH('" + hashAlgorithm.name() + "', " + String.join(", ", table.getHashedColumns())
+                + ")";
+        String pageRange = " WHERE " + keyColumn + " > ? AND " + keyColumn + " <= ? ORDER BY " + keyColumn
+                + " ASC LIMIT ?";
+
+        this.selectIdsSql = "SELECT " + keyColumn + " FROM " + tableName + " ORDER BY " + keyColumn + " ASC";
+        this.selectMaxIdSql = "SELECT MAX(" + keyColumn + ") FROM " + tableName;
+        this.countSql = "SELECT COUNT(*) FROM " + tableName;
+        this.selectIdSampleSql = "SELECT " + keyColumn + " FROM " + tableName + " WHERE RAND() < ?";
+        this.selectByIdsSql = "SELECT " + columnList + " FROM " + tableName + " WHERE " + keyColumn + " IN (";
+        this.orderByIdSql = ") ORDER BY " + keyColumn + " ASC";
+        this.selectPageSql = "SELECT " + columnList + " FROM " + tableName + pageRange;
+        this.selectHashPageSql = "SELECT " + keyColumn + ", " + rowHash + " FROM " + tableName + pageRange;
+        this.checksumAggregatesSql = "MIN(" + keyColumn + ") AS min_id, MAX(" + keyColumn + ") AS max_id, "
+                + "COUNT(*) AS row_count, SUM(" + rowHash + ") AS checksum FROM " + tableName
+                + " WHERE " + keyColumn + " >= ? AND " + keyColumn + " <= ?";
+        this.insertSql = "INSERT INTO " + tableName + " (" + columnList + ") values("
+                + String.join(", ", Collections.nCopies(table.getColumns().size(), "?")) + ")";
+        this.updateSql = "UPDATE " + tableName + " SET " + table.getColumns().stream()
+                .filter(column -> !column.equalsIgnoreCase(keyColumn))
+                .map(column -> column + " = ?")
+                .collect(Collectors.joining(", ")) + " where " + keyColumn + " = ?";
+        this.deleteSql = "DELETE FROM " + tableName + " where " + keyColumn + " = ?";
+
+        if (versionColumn != null) {
+            this.selectLastChangeSeqSql = "SELECT COALESCE(MAX(" + versionColumn + "), 0) FROM " + tableName;
+            this.selectChangesSql = "SELECT " + versionColumn + ", " + keyColumn + ", '"
+                    + RowChange.Operation.UPDATE.code() + "' FROM " + tableName + " WHERE " + versionColumn
+                    + " > ? ORDER BY " + versionColumn + " ASC LIMIT ?";
+            this.deleteChangesSql = null;
+        } else {
+            String changeLog = tableName + ChangeLogTrigger.CHANGE_LOG_SUFFIX;
+            this.selectLastChangeSeqSql = "SELECT COALESCE(MAX(seq), 0) FROM " + changeLog;
+            this.selectChangesSql = "SELECT seq, row_id, op FROM " + changeLog
+                    + " WHERE seq > ? ORDER BY seq ASC LIMIT ?";
+            this.deleteChangesSql = "DELETE FROM " + changeLog + " WHERE seq <= ?";
+        }
+        this.changeLogTable = tableName + ChangeLogTrigger.CHANGE_LOG_SUFFIX;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Streams IDs of all rows into a compressed set, so no list of boxed IDs is built.
+     */
+    public IdSet findAllIds() {
+        IdSet.Builder ids = IdSet.builder();
+        jdbcTemplate.query(selectIdsSql, (RowCallbackHandler) rs -> ids.add(rs.getLong(1)));
+        return ids.build();
+    }
+
+    public Long findMaxId() {
+        return jdbcTemplate.queryForObject(selectMaxIdSql, Long.class);
+    }
+
+    /**
+     * Returns random sample of IDs. Each row is picked with equal probability, so the sample follows ID distribution
+     * with all its gaps.
+     *
+     * @param sampleSize expected number of IDs in sample
+     * @return a list of IDs in no particular order
+     */
+    public List<Long> findIdSample(int sampleSize) {
+        Long count = jdbcTemplate.queryForObject(countSql, Long.class);
+        if (count == null || count == 0 || sampleSize <= 0) {
+            return Collections.emptyList();
+        }
+        if (count <= sampleSize) {
+            return jdbcTemplate.query(selectIdsSql, (rs, i) -> rs.getLong(1));
+        }
+        return jdbcTemplate.query(selectIdSampleSql, new Object[]{(double) sampleSize / count},
+                (rs, i) -> rs.getLong(1));
+    }
+
+    /**
+     * Returns all rows ordered by ID, loaded lazily page by page. Scan is bounded by max ID at the moment of the call,
+     * so rows inserted while iterating are not returned.
+     *
+     * @return an iterator over rows
+     */
+    public Iterator<Row> findAllOrderedById() {
+        Long maxId = findMaxId();
+        if (maxId == null) {
+            return Collections.emptyIterator();
+        }
+        return new KeysetPageIterator<>((afterId, limit) -> findPage(afterId, maxId, limit), Row::getKey, pageSize);
+    }
+
+    /**
+     * Returns rows with IDs in [fromId, toId] range ordered by ID, loaded lazily page by page.
+     *
+     * @param fromId inclusive lower bound of ID
+     * @param toId   inclusive upper bound of ID
+     * @return an iterator over rows
+     */
+    public Iterator<Row> findAllOrderedById(long fromId, long toId) {
+        return new KeysetPageIterator<>((afterId, limit) -> findPage(afterId, toId, limit), Row::getKey, pageSize,
+                afterKey(fromId));
+    }
+
+    /**
+     * Returns hashes of all rows ordered by ID, calculated by database and loaded lazily page by page. Scan is bounded
+     * by max ID at the moment of the call.
+     *
+     * @return an iterator over row hashes
+     */
+    public Iterator<RowHash> findHashesOrderedById() {
+        Long maxId = findMaxId();
+        if (maxId == null) {
+            return Collections.emptyIterator();
+        }
+        return new KeysetPageIterator<>((afterId, limit) -> findHashPage(afterId, maxId, limit),
+                RowHash::getId, pageSize);
+    }
+
+    /**
+     * Returns hashes of rows with IDs in [fromId, toId] range ordered by ID, calculated by database and loaded lazily
+     * page by page.
+     *
+     * @param fromId inclusive lower bound of ID
+     * @param toId   inclusive upper bound of ID
+     * @return an iterator over row hashes
+     */
+    public Iterator<RowHash> findHashesOrderedById(long fromId, long toId) {
+        return new KeysetPageIterator<>((afterId, limit) -> findHashPage(afterId, toId, limit),
+                RowHash::getId, pageSize, afterKey(fromId));
+    }
+
+    /**
+     * Returns rows with given IDs ordered by ID. IDs are queried in chunks of configured page size.
+     *
+     * @param ids row IDs
+     * @return a list of rows, missing IDs are skipped
+     */
+    public List<Row> findByIds(Collection<Long> ids) {
+        List<Long> sortedIds = new ArrayList<>(ids);
+        Collections.sort(sortedIds);
+        RowMapper<Row> rowMapper = rowMapper();
+        List<Row> rows = new ArrayList<>(sortedIds.size());
+        for (int from = 0; from < sortedIds.size(); from += pageSize) {
+            List<Long> chunk = sortedIds.subList(from, Math.min(from + pageSize, sortedIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            rows.addAll(jdbcTemplate.query(selectByIdsSql + placeholders + orderByIdSql, chunk.toArray(), rowMapper));
+        }
+        return rows;
+    }
+
+    /**
+     * Returns checksums of rows with IDs in [fromId, toId] range, split into given number of equal ID buckets.
+     * Checksums are aggregated in database, empty buckets are not returned.
+     *
+     * @param fromId  inclusive lower bound of ID
+     * @param toId    inclusive upper bound of ID
+     * @param buckets number of buckets, 1 to aggregate the whole range
+     * @return a list of bucket checksums ordered by bucket
+     */
+    public List<RangeChecksum> findChecksums(long fromId, long toId, int buckets) {
+        if (buckets == 1) {
+            return jdbcTemplate.query("SELECT 0 AS bucket, " + checksumAggregatesSql + " HAVING COUNT(*) > 0",
+                    new Object[]{fromId, toId}, this::mapChecksum);
+        }
+        long bucketWidth = (toId - fromId) / buckets + 1;
+        String bucket = "(" + table.getKeyColumn() + " - (" + fromId + ")) / " + bucketWidth;
+        return jdbcTemplate.query("SELECT " + bucket + " AS bucket, " + checksumAggregatesSql
+                        + " GROUP BY " + bucket + " ORDER BY bucket",
+                new Object[]{fromId, toId}, this::mapChecksum);
+    }
+
+    /**
+     * Returns a page of rows with IDs in (afterId, maxId] range, ordered by ID.
+     *
+     * @param afterId exclusive lower bound of ID
+     * @param maxId   inclusive upper bound of ID
+     * @param limit   max number of rows in page
+     * @return a list of rows
+     */
+    public List<Row> findPage(long afterId, long maxId, int limit) {
+        RowMapper<Row> rowMapper = rowMapper();
+        return jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(selectPageSql);
+                    ps.setFetchSize(limit);
+                    ps.setLong(1, afterId);
+                    ps.setLong(2, maxId);
+                    ps.setInt(3, limit);
+                    return ps;
+                },
+                rowMapper);
+    }
+
+    /**
+     * Returns a page of row hashes with IDs in (afterId, maxId] range, ordered by ID.
+     *
+     * @param afterId exclusive lower bound of ID
+     * @param maxId   inclusive upper bound of ID
+     * @param limit   max number of rows in page
+     * @return a list of row hashes
+     */
+    public List<RowHash> findHashPage(long afterId, long maxId, int limit) {
+        return jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(selectHashPageSql);
+                    ps.setFetchSize(limit);
+                    ps.setLong(1, afterId);
+                    ps.setLong(2, maxId);
+                    ps.setInt(3, limit);
+                    return ps;
+                },
+                (rs, i) -> new RowHash(rs.getLong(1), rs.getLong(2)));
+    }
+
+    /**
+     * Inserts rows with their keys with JDBC batches of configured size.
+     *
+     * @param rows rows
+     * @return number of affected rows per statement, grouped by batch
+     */
+    public int[][] batchInsert(Collection<Row> rows) {
+        ColumnType[] types = getColumnTypes();
+        return jdbcTemplate.batchUpdate(insertSql, rows, batchSize, (ps, row) -> {
+            for (int column = 0; column < types.length; column++) {
+                types[column].bind(ps, column + 1, row.getValue(column));
+            }
+        });
+    }
+
+    /**
+     * Updates all non-key columns of rows with JDBC batches of configured size.
+     *
+     * @param rows rows
+     * @return number of affected rows per statement, grouped by batch
+     */
+    public int[][] batchUpdate(Collection<Row> rows) {
+        ColumnType[] types = getColumnTypes();
+        int keyIndex = table.getKeyIndex();
+        return jdbcTemplate.batchUpdate(updateSql, rows, batchSize, (ps, row) -> {
+            int parameter = 1;
+            for (int column = 0; column < types.length; column++) {
+                if (column != keyIndex) {
+                    types[column].bind(ps, parameter++, row.getValue(column));
+                }
+            }
+            ps.setLong(parameter, row.getKey());
+        });
+    }
+
+    /**
+     * Deletes rows by IDs with JDBC batches of configured size.
+     *
+     * @param ids row IDs
+     * @return number of affected rows per statement, grouped by batch
+     */
+    public int[][] batchDeleteByIds(Collection<Long> ids) {
+        return jdbcTemplate.batchUpdate(deleteSql, ids, batchSize, (ps, id) -> ps.setLong(1, id));
+    }
+
+    /**
+     * Returns sequence number of the last entry of change log, which {@link ChangeLogTrigger} fills for this table,
+     * or max row version, if table has version column.
+     *
+     * @return sequence number or 0, if change log is empty
+     */
+    public long findLastChangeSeq() {
+        Long seq = jdbcTemplate.queryForObject(selectLastChangeSeqSql, Long.class);
+        return seq != null ? seq : 0;
+    }
+
+    /**
+     * Returns change log entries with sequence numbers above given one. With version column, returns rows with
+     * versions above given one as updates, which is an index range scan if version column is indexed.
+     *
+     * @param afterSeq exclusive lower bound of sequence number
+     * @param limit    max number of entries
+     * @return a list of changes ordered by sequence number
+     */
+    public List<RowChange> findChanges(long afterSeq, int limit) {
+        return jdbcTemplate.query(selectChangesSql, new Object[]{afterSeq, limit},
+                (rs, i) -> new RowChange(rs.getLong(1), rs.getLong(2), RowChange.Operation.of(rs.getString(3))));
+    }
+
+    /**
+     * Deletes change log entries up to given sequence number. Does nothing with version column.
+     *
+     * @param toSeq inclusive upper bound of sequence number
+     * @return number of deleted entries
+     */
+    public int deleteChanges(long toSeq) {
+        if (deleteChangesSql == null) {
+            return 0;
+        }
+        return jdbcTemplate.update(deleteChangesSql, toSeq);
+    }
+
+    /**
+     * Installs {@link ChangeLogTrigger} on the table, if its changes are read from change log. Otherwise removes the
+     * trigger and purges change log, so rows are not logged to a change log nobody reads. Trigger is named after change
+     * log table with {@code _trigger} suffix.
+     *
+     * @param changeLog true if changes of the table are read from change log
+     * @throws IllegalStateException if change log is used and change log table does not exist
+     */
+    public void setUpChangeLogTrigger(boolean changeLog) {
+        String trigger = changeLogTable + "_trigger";
+        boolean changeLogExists = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            DatabaseMetaData metaData = con.getMetaData();
+            try (ResultSet rs = metaData.getTables(null, null, identifier(metaData, changeLogTable), null)) {
+                return rs.next();
+            }
+        });
+        if (changeLog) {
+            if (!changeLogExists) {
+                throw new IllegalStateException("Change log table is not found: " + changeLogTable);
+            }
+            jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS " + trigger + " AFTER INSERT, UPDATE, DELETE ON "
+                    + tableName + " FOR EACH ROW CALL \"" + ChangeLogTrigger.class.getName() + "\"");
+        } else {
+            jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + trigger);
+            if (changeLogExists) {
+                int purged = jdbcTemplate.update("DELETE FROM " + changeLogTable);
+                logger.info("Change log trigger of {} is removed, {} logged changes are purged", tableName, purged);
+            }
+        }
+    }
+
+    /**
+     * Returns types of row columns, which are read from database metadata on first call.
+     *
+     * @return column types in order of row values
+     * @throws IllegalStateException if table or one of its columns does not exist, or key column is not integral
+     */
+    public ColumnType[] getColumnTypes() {
+        ColumnType[] types = columnTypes;
+        if (types == null) {
+            synchronized (this) {
+                types = columnTypes;
+                if (types == null) {
+                    types = readColumnTypes();
+                    rowMapper = createRowMapper(types);
+                    columnTypes = types;
+                }
+            }
+        }
+        return types;
+    }
+
+    private RowMapper<Row> rowMapper() {
+        getColumnTypes();
+        return rowMapper;
+    }
+
+    private ColumnType[] readColumnTypes() {
+        Map<String, Integer> sqlTypes = jdbcTemplate.execute((ConnectionCallback<Map<String, Integer>>) con -> {
+            DatabaseMetaData metaData = con.getMetaData();
+            Map<String, Integer> types = new HashMap<>();
+            try (ResultSet rs = metaData.getColumns(null, null, identifier(metaData, tableName), null)) {
+                while (rs.next()) {
+                    types.put(rs.getString("COLUMN_NAME").toUpperCase(Locale.ROOT), rs.getInt("DATA_TYPE"));
+                }
+            }
+            return types;
+        });
+        if (sqlTypes == null || sqlTypes.isEmpty()) {
+            throw new IllegalStateException("Table is not found: " + tableName);
+        }
+
+        List<String> columns = table.getColumns();
+        ColumnType[] types = new ColumnType[columns.size()];
+        for (int column = 0; column < types.length; column++) {
+            Integer sqlType = sqlTypes.get(columns.get(column).toUpperCase(Locale.ROOT));
+            if (sqlType == null) {
+                throw new IllegalStateException("Column " + columns.get(column) + " is not found in " + tableName);
+            }
+            types[column] = ColumnType.of(sqlType);
+        }
+        if (!types[table.getKeyIndex()].isIntegral()) {
+            throw new IllegalStateException("Key column " + table.getKeyColumn() + " of " + tableName
+                    + " is not integral: " + types[table.getKeyIndex()]);
+        }
+        logger.info("Columns of {} are {} of types {}", tableName, columns, Arrays.toString(types));
+        return types;
+    }
+
+    private RowMapper<Row> createRowMapper(ColumnType[] types) {
+        int keyIndex = table.getKeyIndex();
+        return (rs, i) -> {
+            Object[] values = new Object[types.length];
+            for (int column = 0; column < types.length; column++) {
+                values[column] = types[column].read(rs, column + 1);
+            }
+            return new Row(((Number) values[keyIndex]).longValue(), values);
+        };
+    }
+
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT)
+                : metaData.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    private long afterKey(long fromId) {
+        return fromId == Long.MIN_VALUE ? Long.MIN_VALUE : fromId - 1;
+    }
+
+    private RangeChecksum mapChecksum(ResultSet rs, int rowNum) throws SQLException {
+        return new RangeChecksum(rs.getLong("bucket"), rs.getLong("min_id"), rs.getLong("max_id"),
+                rs.getLong("row_count"), rs.getBigDecimal("checksum"));
+    }
+}
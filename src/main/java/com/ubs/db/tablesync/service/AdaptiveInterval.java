@@ -0,0 +1,83 @@
+package com.ubs.db.tablesync.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay between synchronizations of a table pair, which adapts to observed runs. The interval is halved after a run,
+ * which applied changes, and doubled after an idle or failed run, within configured bounds. A run is never followed
+ * by a delay shorter than its own duration, so a slow table pair keeps workers busy at most half of the time. A run,
+ * which applied at least backlog threshold of changes, is followed by an immediate rerun. Jitter spreads runs of
+ * table pairs started together.
+ */
+class AdaptiveInterval {
+
+    private final long minMillis;
+
+    private final long maxMillis;
+
+    private final double jitter;
+
+    private final int backlogThreshold;
+
+    private long intervalMillis;
+
+    /**
+     * @param initialMillis    interval before the first run is observed
+     * @param minMillis        lower bound of interval
+     * @param maxMillis        upper bound of interval
+     * @param jitter           max relative deviation of delay, 0 for none
+     * @param backlogThreshold number of changes of a run, after which next run starts immediately, not positive value
+     *                         disables immediate reruns
+     */
+    AdaptiveInterval(long initialMillis, long minMillis, long maxMillis, double jitter, int backlogThreshold) {
+        if (minMillis > maxMillis) {
+            throw new IllegalArgumentException("Min interval " + minMillis + " is above max one " + maxMillis);
+        }
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.jitter = jitter;
+        this.backlogThreshold = backlogThreshold;
+        this.intervalMillis = clamp(initialMillis);
+    }
+
+    /**
+     * @param durationMillis duration of finished run
+     * @param changes        number of changes applied by the run
+     * @return delay before the next run
+     */
+    long afterRun(long durationMillis, int changes) {
+        if (changes > 0) {
+            intervalMillis = clamp(intervalMillis / 2);
+            if (backlogThreshold > 0 && changes >= backlogThreshold) {
+                return 0;
+            }
+        } else {
+            intervalMillis = clamp(intervalMillis * 2);
+        }
+        return withJitter(clamp(Math.max(intervalMillis, durationMillis)));
+    }
+
+    /**
+     * @return delay before the next run after a failed one
+     */
+    long afterFailure() {
+        intervalMillis = clamp(intervalMillis * 2);
+        return withJitter(intervalMillis);
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    private long withJitter(long delayMillis) {
+        if (jitter <= 0) {
+            return delayMillis;
+        }
+        double deviation = ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Math.max(0, Math.round(delayMillis * (1 + deviation)));
+    }
+
+    private long clamp(long millis) {
+        return Math.min(maxMillis, Math.max(minMillis, millis));
+    }
+}
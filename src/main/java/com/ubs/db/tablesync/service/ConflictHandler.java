@@ -1,19 +1,129 @@
 package com.ubs.db.tablesync.service;
 
+import com.ubs.db.tablesync.model.Conflict;
+import com.ubs.db.tablesync.persistence.ConflictRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 /**
- * Conflict manager for merge conflict situation. As of now just logs ID of rows in conflict.
+ * Conflict manager for merge conflict situation. Conflicts are handed off through a bounded queue to a background
+ * writer, which inserts them into sync_conflict table in batches, so synchronization is not slowed down by conflict
+ * storms. Quarantined rows are recorded the same way. If the queue is full, conflicts are dropped. Synchronizer
+ * removes stored hash of a conflicting row, so a dropped conflict is found again by a later synchronization.
  */
 @Service
 public class ConflictHandler {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    public void handle(Long id) {
-        //just log for now
-        logger.error("! Row with ID: {} has conflict, please resolve it manually", id);
+    @Autowired
+    private ConflictRepository conflictRepository;
+
+    @Value("${tableSync.conflicts.queueCapacity:10000}")
+    private int queueCapacity;
+
+    @Value("${tableSync.conflicts.batchSize:500}")
+    private int batchSize;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private BlockingQueue<Conflict> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        writer = new Thread(this::write, "conflict-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(10_000);
+    }
+
+    /**
+     * Queues conflict to be recorded, never blocks.
+     *
+     * @param conflict found conflict
+     * @return false if queue is full and conflict is dropped
+     */
+    public boolean handle(Conflict conflict) {
+        if (queue.offer(conflict)) {
+            return true;
+        }
+        long count = dropped.incrementAndGet();
+        if (Long.bitCount(count) == 1) {
+            logger.warn("Conflict queue is full, {} conflicts are dropped so far", count);
+        }
+        return false;
+    }
+
+    private void write() {
+        List<Conflict> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Conflict first = queue.poll(100, MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, Math.max(1, batchSize) - 1);
+                conflictRepository.batchInsert(batch);
+                logger.error("! {} conflicts are recorded to sync_conflict, please resolve them manually: {}",
+                        batch.size(), byTable(batch, false));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("{} conflicts cannot be recorded: {}", batch.size(), byTable(batch, true), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Summarizes a batch without listing its conflicts, which can be as many as batch size.
+     *
+     * @param idRanges whether to add range of IDs of each table
+     * @return number of conflicts of each table
+     */
+    private static String byTable(List<Conflict> batch, boolean idRanges) {
+        //count, min ID and max ID of each table
+        Map<String, long[]> tables = new TreeMap<>();
+        for (Conflict conflict : batch) {
+            long[] summary = tables.computeIfAbsent(conflict.getTable(),
+                    table -> new long[]{0, Long.MAX_VALUE, Long.MIN_VALUE});
+            summary[0]++;
+            summary[1] = Math.min(summary[1], conflict.getId());
+            summary[2] = Math.max(summary[2], conflict.getId());
+        }
+        StringJoiner result = new StringJoiner(", ");
+        tables.forEach((table, summary) -> result.add(table + ": " + summary[0]
+                + (idRanges ? " with IDs " + summary[1] + ".." + summary[2] : "")));
+        return result.toString();
     }
 }
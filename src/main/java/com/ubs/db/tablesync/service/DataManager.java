@@ -1,32 +1,177 @@
 package com.ubs.db.tablesync.service;
 
+import com.ubs.db.tablesync.domain.IdSet;
+import com.ubs.db.tablesync.model.RangeChecksum;
+import com.ubs.db.tablesync.model.RowChange;
+import com.ubs.db.tablesync.model.RowHash;
+
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * Implement this interface for custom DataManager.
+ * <p>
+ * Only row access and bulk mutations are mandatory. Methods backing optional settings (ID reconciliation,
+ * partitions, range diff, fingerprints, hash pushdown, change log) throw {@link UnsupportedOperationException}
+ * by default, so the matching setting can be enabled only for implementations overriding them.
  *
  * @param <K> key (ID) type
  * @param <R> row type
  */
 public interface DataManager<K, R> {
 
-    List<K> mainIdList();
+    /**
+     * IDs of all rows of main source, compressed.
+     */
+    default IdSet mainIdSet() {
+        throw new UnsupportedOperationException("idReconcileIntervalMillis is not supported");
+    }
+
+    /**
+     * IDs of all rows of mirror source, compressed.
+     */
+    default IdSet mirrorIdSet() {
+        throw new UnsupportedOperationException("idReconcileIntervalMillis is not supported");
+    }
+
+    /**
+     * Max key of both sources, null if both are empty.
+     */
+    default K maxKey() {
+        throw new UnsupportedOperationException("parallelism is not supported");
+    }
+
+    /**
+     * Random sample of keys of both sources, used to split key space into ranges of similar size.
+     */
+    default List<K> keySample(int sampleSize) {
+        throw new UnsupportedOperationException("parallelism is not supported");
+    }
+
+    /**
+     * Rows of main source ordered by key. Implementations are expected to load rows lazily.
+     */
+    Iterator<R> mainRows();
+
+    /**
+     * Rows of mirror source ordered by key. Implementations are expected to load rows lazily.
+     */
+    Iterator<R> mirrorRows();
+
+    /**
+     * Rows of main source with keys in [fromKey, toKey] range ordered by key.
+     */
+    Iterator<R> mainRows(K fromKey, K toKey);
+
+    /**
+     * Rows of mirror source with keys in [fromKey, toKey] range ordered by key.
+     */
+    Iterator<R> mirrorRows(K fromKey, K toKey);
+
+    /**
+     * Checksums of main source rows with keys in [fromKey, toKey] range, split into given number of equal key buckets.
+     */
+    default List<RangeChecksum> mainChecksums(K fromKey, K toKey, int buckets) {
+        throw new UnsupportedOperationException("rangeDiffFanout is not supported");
+    }
+
+    /**
+     * Checksums of mirror source rows with keys in [fromKey, toKey] range, split into given number of equal key buckets.
+     */
+    default List<RangeChecksum> mirrorChecksums(K fromKey, K toKey, int buckets) {
+        throw new UnsupportedOperationException("rangeDiffFanout is not supported");
+    }
+
+    /**
+     * Keys and hashes of main source rows ordered by key, calculated by the source itself.
+     */
+    default Iterator<RowHash> mainHashes() {
+        throw new UnsupportedOperationException("hashPushdown is not supported");
+    }
+
+    /**
+     * Keys and hashes of mirror source rows ordered by key, calculated by the source itself.
+     */
+    default Iterator<RowHash> mirrorHashes() {
+        throw new UnsupportedOperationException("hashPushdown is not supported");
+    }
+
+    /**
+     * Keys and hashes of main source rows with keys in [fromKey, toKey] range ordered by key.
+     */
+    default Iterator<RowHash> mainHashes(K fromKey, K toKey) {
+        throw new UnsupportedOperationException("hashPushdown is not supported");
+    }
+
+    /**
+     * Keys and hashes of mirror source rows with keys in [fromKey, toKey] range ordered by key.
+     */
+    default Iterator<RowHash> mirrorHashes(K fromKey, K toKey) {
+        throw new UnsupportedOperationException("hashPushdown is not supported");
+    }
+
+    /**
+     * Rows of main source with given keys. Missing keys are skipped.
+     */
+    List<R> mainRows(Collection<K> keys);
+
+    /**
+     * Rows of mirror source with given keys. Missing keys are skipped.
+     */
+    List<R> mirrorRows(Collection<K> keys);
+
+    /**
+     * Sequence number of the last entry of main source change log, 0 if change log is empty.
+     */
+    default long mainChangeSeq() {
+        throw new UnsupportedOperationException("changeLog is not supported");
+    }
+
+    /**
+     * Sequence number of the last entry of mirror source change log, 0 if change log is empty.
+     */
+    default long mirrorChangeSeq() {
+        throw new UnsupportedOperationException("changeLog is not supported");
+    }
+
+    /**
+     * Entries of main source change log with sequence numbers above given one, ordered by sequence number.
+     */
+    default List<RowChange> mainChanges(long afterSeq, int limit) {
+        throw new UnsupportedOperationException("changeLog is not supported");
+    }
 
-    List<K> mirrorIdList();
+    /**
+     * Entries of mirror source change log with sequence numbers above given one, ordered by sequence number.
+     */
+    default List<RowChange> mirrorChanges(long afterSeq, int limit) {
+        throw new UnsupportedOperationException("changeLog is not supported");
+    }
 
-    R mainRow(K key);
+    /**
+     * Removes entries of main source change log up to given sequence number inclusive.
+     */
+    default void purgeMainChanges(long toSeq) {
+        throw new UnsupportedOperationException("changeLog is not supported");
+    }
 
-    R mirrorRow(K key);
+    /**
+     * Removes entries of mirror source change log up to given sequence number inclusive.
+     */
+    default void purgeMirrorChanges(long toSeq) {
+        throw new UnsupportedOperationException("changeLog is not supported");
+    }
 
-    void updateMainRow(R row);
+    void updateMainRows(Collection<R> rows);
 
-    void updateMirrorRow(R row);
+    void updateMirrorRows(Collection<R> rows);
 
-    void removeMainRow(R row);
+    void removeMainRows(Collection<R> rows);
 
-    void removeMirrorRow(R row);
+    void removeMirrorRows(Collection<R> rows);
 
-    void addMainRow(R row);
+    void addMainRows(Collection<R> rows);
 
-    void addMirrorRow(R row);
+    void addMirrorRows(Collection<R> rows);
 }
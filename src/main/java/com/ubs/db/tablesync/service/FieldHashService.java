@@ -0,0 +1,40 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.domain.HashInput;
+
+/**
+ * Base HashService, which writes entity fields directly into a reusable per-thread buffer and hashes it with
+ * non-cryptographic hash algorithm. No strings or digests are allocated per entity.
+ *
+ * @param <T> entity type, which is used for hashing
+ */
+public abstract class FieldHashService<T> implements HashService<T> {
+
+    private static final ThreadLocal<HashInput> INPUT = ThreadLocal.withInitial(HashInput::new);
+
+    private final HashAlgorithm algorithm;
+
+    protected FieldHashService(HashAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public long hash(T data) {
+        HashInput input = INPUT.get().reset();
+        write(data, input);
+        return algorithm.hash(input);
+    }
+
+    /**
+     * Writes all hashed fields of entity to input.
+     *
+     * @param data  entity
+     * @param input reset buffer
+     */
+    protected abstract void write(T data, HashInput input);
+}
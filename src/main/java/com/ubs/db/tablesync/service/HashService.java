@@ -7,5 +7,11 @@ package com.ubs.db.tablesync.service;
  */
 public interface HashService<T> {
 
-    String hash(T data);
+    /**
+     * Returns 64-bit hash of entity, which is kept in HashStore as is.
+     *
+     * @param data entity
+     * @return hash
+     */
+    long hash(T data);
 }
@@ -0,0 +1,56 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.model.RowHash;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * ReactiveDataManager over a blocking DataManager. Each page of rows is read on given bounded scheduler only when
+ * consumer requests it, so its threads are taken by database calls only, never by waiting for consumer. Sizing the
+ * scheduler to connection pool lets many table pairs share a few threads.
+ *
+ * @param <K> key (ID) type
+ * @param <R> row type
+ */
+public class JdbcReactiveDataManager<K, R> implements ReactiveDataManager<K, R> {
+
+    private final DataManager<K, R> dataManager;
+
+    private final Scheduler scheduler;
+
+    /**
+     * @param dataManager blocking data manager, which lazily loads rows page by page
+     * @param scheduler   runs blocking reads
+     */
+    public JdbcReactiveDataManager(DataManager<K, R> dataManager, Scheduler scheduler) {
+        this.dataManager = dataManager;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Flux<R> mainRows() {
+        return read(dataManager::mainRows);
+    }
+
+    @Override
+    public Flux<R> mirrorRows() {
+        return read(dataManager::mirrorRows);
+    }
+
+    @Override
+    public Flux<RowHash> mainHashes() {
+        return read(dataManager::mainHashes);
+    }
+
+    @Override
+    public Flux<RowHash> mirrorHashes() {
+        return read(dataManager::mirrorHashes);
+    }
+
+    private <E> Flux<E> read(Supplier<Iterator<E>> rows) {
+        return Flux.fromIterable(rows::get).subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.Fingerprints;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.TableDefinition;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Previous hashing service, which used MD5 of hashed column values joined with '-'. For TaskDefinition it is equal
+ * to MD5 of its hashing string. Used only to recognize hashes stored by previous versions, so they can be migrated
+ * to current HashService.
+ */
+public class LegacyRowHashService implements HashService<Row> {
+
+    private final int[] hashedIndexes;
+
+    public LegacyRowHashService(TableDefinition table) {
+        this.hashedIndexes = table.getHashedIndexes();
+    }
+
+    @Override
+    public long hash(Row row) {
+        StringBuilder hashingString = new StringBuilder();
+        for (int i = 0; i < hashedIndexes.length; i++) {
+            if (i > 0) {
+                hashingString.append('-');
+            }
+            hashingString.append(row.getValue(hashedIndexes[i]));
+        }
+        return Fingerprints.of(DigestUtils.md5Hex(hashingString.toString()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.HashStore;
+import com.ubs.db.tablesync.domain.SyncMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SyncMetrics of a table pair published to Micrometer registry, tagged by table pair name:
+ * <ul>
+ * <li>{@code table.sync.phase} timer per phase, one sample per run;</li>
+ * <li>{@code table.sync.run} timer of whole runs;</li>
+ * <li>{@code table.sync.mutations} counter per side and mutation;</li>
+ * <li>{@code table.sync.conflicts} and {@code table.sync.rows} counters;</li>
+ * <li>{@code table.sync.skipped} counter of runs skipped as neither table changed;</li>
+ * <li>{@code table.sync.rows.per.second} gauge of rows compared per second by the last run;</li>
+ * <li>{@code table.sync.hash.store.size} gauge of stored hashes.</li>
+ * </ul>
+ */
+public class MicrometerSyncMetrics implements SyncMetrics {
+
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+
+    private final Counter[][] mutationCounters = new Counter[Side.values().length][Mutation.values().length];
+
+    private final Counter conflicts;
+
+    private final Counter rows;
+
+    private final Counter skipped;
+
+    private final Timer runs;
+
+    private volatile double rowsPerSecond;
+
+    /**
+     * @param registry  registry to publish meters to
+     * @param name      name of table pair
+     * @param hashStore hash store of table pair, which size is published
+     */
+    public MicrometerSyncMetrics(MeterRegistry registry, String name, HashStore hashStore) {
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("table.sync.phase")
+                    .tag("table", name)
+                    .tag("phase", phase.name().toLowerCase())
+                    .register(registry));
+        }
+        for (Side side : Side.values()) {
+            for (Mutation mutation : Mutation.values()) {
+                mutationCounters[side.ordinal()][mutation.ordinal()] = Counter.builder("table.sync.mutations")
+                        .tag("table", name)
+                        .tag("side", side.name().toLowerCase())
+                        .tag("mutation", mutation.name().toLowerCase())
+                        .register(registry);
+            }
+        }
+        conflicts = Counter.builder("table.sync.conflicts").tag("table", name).register(registry);
+        rows = Counter.builder("table.sync.rows").tag("table", name).register(registry);
+        skipped = Counter.builder("table.sync.skipped").tag("table", name).register(registry);
+        runs = Timer.builder("table.sync.run").tag("table", name).register(registry);
+        Gauge.builder("table.sync.rows.per.second", this, metrics -> metrics.rowsPerSecond)
+                .tag("table", name)
+                .register(registry);
+        Gauge.builder("table.sync.hash.store.size", hashStore, HashStore::size)
+                .tag("table", name)
+                .register(registry);
+    }
+
+    @Override
+    public void phase(Phase phase, long nanos) {
+        phaseTimers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void mutations(Side side, Mutation mutation, int count) {
+        mutationCounters[side.ordinal()][mutation.ordinal()].increment(count);
+    }
+
+    @Override
+    public void conflicts(int count) {
+        conflicts.increment(count);
+    }
+
+    @Override
+    public void run(long rows, long nanos) {
+        this.rows.increment(rows);
+        runs.record(nanos, TimeUnit.NANOSECONDS);
+        rowsPerSecond = nanos > 0 ? rows * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public void skipped() {
+        skipped.increment();
+    }
+}
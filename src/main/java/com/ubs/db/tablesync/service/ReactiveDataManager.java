@@ -0,0 +1,34 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.model.RowHash;
+import reactor.core.publisher.Flux;
+
+/**
+ * Publisher based variant of {@link DataManager} reads, which synchronizer consumes with demand driven backpressure.
+ * Rows are read only as fast as they are compared, no thread is held while neither source nor consumer is ready.
+ *
+ * @param <K> key (ID) type
+ * @param <R> row type
+ */
+public interface ReactiveDataManager<K, R> {
+
+    /**
+     * Rows of main source ordered by key.
+     */
+    Flux<R> mainRows();
+
+    /**
+     * Rows of mirror source ordered by key.
+     */
+    Flux<R> mirrorRows();
+
+    /**
+     * Keys and hashes of main source rows ordered by key, calculated by the source itself.
+     */
+    Flux<RowHash> mainHashes();
+
+    /**
+     * Keys and hashes of mirror source rows ordered by key, calculated by the source itself.
+     */
+    Flux<RowHash> mirrorHashes();
+}
@@ -0,0 +1,26 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.HashAlgorithm;
+import com.ubs.db.tablesync.domain.HashInput;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.TableDefinition;
+
+/**
+ * Hashing service for generic rows. Hashes values of hashed columns in order of table definition.
+ */
+public class RowHashService extends FieldHashService<Row> {
+
+    private final int[] hashedIndexes;
+
+    public RowHashService(TableDefinition table, HashAlgorithm algorithm) {
+        super(algorithm);
+        this.hashedIndexes = table.getHashedIndexes();
+    }
+
+    @Override
+    protected void write(Row row, HashInput input) {
+        for (int index : hashedIndexes) {
+            input.putValue(row.getValue(index));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.SyncJournal.Decision;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+import com.ubs.db.tablesync.domain.SyncPlan;
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exposes plan/apply mode of table pairs as actuator endpoint:
+ * <ul>
+ * <li>{@code POST /actuator/syncplan/{name}} computes a plan of table pair as a dry run and keeps it;</li>
+ * <li>{@code GET /actuator/syncplan/{name}?limit=100} shows kept plan with its first entries;</li>
+ * <li>{@code POST /actuator/syncplan/{name}} with {@code {"apply": true}} applies kept plan and drops it.</li>
+ * </ul>
+ * Scheduled synchronization keeps running, plan is applied only to rows, which did not change since it was computed.
+ */
+@Component
+@Endpoint(id = "syncplan")
+public class SyncPlanEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    @Autowired
+    private TableSyncRegistry registry;
+
+    private final Map<String, SyncPlan> plans = new ConcurrentHashMap<>();
+
+    @ReadOperation
+    public Map<String, Object> plan(@Selector String name, @Nullable Integer limit) {
+        SyncPlan plan = plans.get(name);
+        return plan != null ? summary(name, plan, limit != null ? limit : DEFAULT_LIMIT) : null;
+    }
+
+    @WriteOperation
+    public Map<String, Object> planOrApply(@Selector String name, @Nullable Boolean apply) {
+        TableSynchronizer synchronizer = registry.getSynchronizer(name);
+        if (synchronizer == null) {
+            return null;
+        }
+        if (apply == null || !apply) {
+            SyncPlan plan = synchronizer.plan();
+            plans.put(name, plan);
+            return summary(name, plan, DEFAULT_LIMIT);
+        }
+        SyncPlan plan = plans.remove(name);
+        if (plan == null) {
+            return null;
+        }
+        Map<String, Object> summary = summary(name, plan, 0);
+        summary.put("applied", synchronizer.apply(plan));
+        return summary;
+    }
+
+    private Map<String, Object> summary(String name, SyncPlan plan, int limit) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("name", name);
+        summary.put("createdAt", plan.getCreatedAt().toString());
+        summary.put("size", plan.size());
+        for (Side side : Side.values()) {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (Decision decision : new Decision[]{Decision.ADD, Decision.UPDATE, Decision.REMOVE}) {
+                counts.put(decision.name().toLowerCase(), plan.count(decision, side));
+            }
+            summary.put(side.name().toLowerCase(), counts);
+        }
+        summary.put("conflicts", plan.conflicts());
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, plan.size()); i++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", plan.getId(i));
+            entry.put("decision", plan.getDecision(i));
+            entry.put("side", plan.getSide(i));
+            entry.put("mainHash", String.format("%016x", plan.getMainHash(i)));
+            entry.put("mirrorHash", String.format("%016x", plan.getMirrorHash(i)));
+            entries.add(entry);
+        }
+        if (!entries.isEmpty()) {
+            summary.put("entries", entries);
+        }
+        return summary;
+    }
+}
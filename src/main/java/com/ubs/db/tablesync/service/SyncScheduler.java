@@ -0,0 +1,143 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Schedules synchronization of all registered table pairs on a shared bounded worker pool. Each table pair is
+ * synchronized again after a delay since its previous synchronization ended, so runs of a table pair never overlap.
+ * The delay adapts to duration and number of changes of previous run, see {@link AdaptiveInterval}. Due runs wait for
+ * a free worker in FIFO order, so a slow or busy table pair does not starve others.
+ * <p>
+ * In reactive mode due runs are subscribed to instead of taking a worker, so all table pairs progress concurrently on
+ * the shared reactive scheduler, see {@link TableSynchronizer#syncReactive()}.
+ */
+@Component
+public class SyncScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private TableSyncRegistry registry;
+
+    @Value("${tableSync.workerThreads:4}")
+    private int workerThreads;
+
+    @Value("${tableSync.schedule.minIntervalMillis:1000}")
+    private long minIntervalMillis;
+
+    @Value("${tableSync.schedule.maxIntervalMillis:60000}")
+    private long maxIntervalMillis;
+
+    @Value("${tableSync.schedule.jitter:0.1}")
+    private double jitter;
+
+    @Value("${tableSync.schedule.backlogThreshold:0}")
+    private int backlogThreshold;
+
+    @Value("${tableSync.reactive.enabled:false}")
+    private boolean reactive;
+
+    private ScheduledExecutorService timer;
+
+    private ExecutorService workers;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sync-timer-"));
+        workers = Executors.newFixedThreadPool(Math.max(1, workerThreads),
+                new CustomizableThreadFactory("table-sync-"));
+        for (TableSynchronizer synchronizer : registry.getSynchronizers()) {
+            AdaptiveInterval interval = new AdaptiveInterval(synchronizer.getIntervalMillis(),
+                    Math.min(minIntervalMillis, synchronizer.getIntervalMillis()),
+                    Math.max(maxIntervalMillis, synchronizer.getIntervalMillis()), jitter, backlogThreshold);
+            schedule(synchronizer, interval, 0);
+        }
+        if (reactive) {
+            logger.info("{} table pairs are scheduled reactively", registry.getSynchronizers().size());
+        } else {
+            logger.info("{} table pairs are scheduled on {} workers", registry.getSynchronizers().size(),
+                    workerThreads);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (timer == null) {
+            return;
+        }
+        timer.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(30, SECONDS)) {
+            logger.warn("Synchronization is still running, workers are interrupted");
+            workers.shutdownNow();
+        }
+    }
+
+    private void run(TableSynchronizer synchronizer, AdaptiveInterval interval) {
+        long delayMillis = interval.getIntervalMillis();
+        try {
+            logger.info("--- Sync operation of {} started ---", synchronizer.getName());
+            long started = System.currentTimeMillis();
+            int changes = synchronizer.sync();
+            delayMillis = succeeded(synchronizer, interval, started, changes);
+        } catch (RuntimeException e) {
+            delayMillis = failed(synchronizer, interval, e);
+        } finally {
+            schedule(synchronizer, interval, delayMillis);
+        }
+    }
+
+    private void runReactive(TableSynchronizer synchronizer, AdaptiveInterval interval) {
+        logger.info("--- Sync operation of {} started ---", synchronizer.getName());
+        long started = System.currentTimeMillis();
+        synchronizer.syncReactive().subscribe(
+                changes -> schedule(synchronizer, interval, succeeded(synchronizer, interval, started, changes)),
+                e -> schedule(synchronizer, interval, failed(synchronizer, interval, e)));
+    }
+
+    private long succeeded(TableSynchronizer synchronizer, AdaptiveInterval interval, long started, int changes) {
+        long duration = System.currentTimeMillis() - started;
+        long delayMillis = interval.afterRun(duration, changes);
+        logger.info("--- Sync operation of {} stopped: {} changes in {} ms, next one in {} ms ---",
+                synchronizer.getName(), changes, duration, delayMillis);
+        return delayMillis;
+    }
+
+    private long failed(TableSynchronizer synchronizer, AdaptiveInterval interval, Throwable e) {
+        long delayMillis = interval.afterFailure();
+        logger.error("Sync operation of {} failed, next one in {} ms", synchronizer.getName(), delayMillis, e);
+        return delayMillis;
+    }
+
+    private void schedule(TableSynchronizer synchronizer, AdaptiveInterval interval, long delayMillis) {
+        try {
+            if (reactive) {
+                timer.schedule(() -> runReactive(synchronizer, interval), delayMillis, MILLISECONDS);
+            } else {
+                timer.schedule(() -> workers.execute(() -> run(synchronizer, interval)), delayMillis, MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("Sync operation of {} is not scheduled, scheduler is stopped", synchronizer.getName());
+        }
+    }
+}
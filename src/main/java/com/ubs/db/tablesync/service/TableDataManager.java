@@ -0,0 +1,389 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.IdSet;
+import com.ubs.db.tablesync.model.RangeChecksum;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.RowChange;
+import com.ubs.db.tablesync.model.RowHash;
+import com.ubs.db.tablesync.persistence.TableRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Data manager facade for easier data manipulation within both main and mirror repositories of a table pair.
+ */
+public class TableDataManager implements DataManager<Long, Row> {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String name;
+
+    private final TableRepository mainRepository;
+
+    private final TableRepository mirrorRepository;
+
+    /**
+     * @param name             name of table pair, used in log messages
+     * @param mainRepository   repository of main table
+     * @param mirrorRepository repository of mirror table
+     */
+    public TableDataManager(String name, TableRepository mainRepository, TableRepository mirrorRepository) {
+        this.name = name;
+        this.mainRepository = mainRepository;
+        this.mirrorRepository = mirrorRepository;
+    }
+
+    /**
+     * Returns all IDs from main repository.
+     *
+     * @return compressed set of row IDs
+     */
+    @Override
+    public IdSet mainIdSet() {
+        IdSet ids = mainRepository.findAllIds();
+        logger.debug("< {} {} IDs are loaded from Main in {} bytes", ids.size(), name, ids.sizeInBytes());
+        return ids;
+    }
+
+    /**
+     * Returns all IDs from mirror repository.
+     *
+     * @return compressed set of row IDs
+     */
+    @Override
+    public IdSet mirrorIdSet() {
+        IdSet ids = mirrorRepository.findAllIds();
+        logger.debug("< {} {} IDs are loaded from Mirror in {} bytes", ids.size(), name, ids.sizeInBytes());
+        return ids;
+    }
+
+    /**
+     * Returns max ID of both repositories.
+     *
+     * @return max row ID or null, if both repositories are empty
+     */
+    @Override
+    public Long maxKey() {
+        Long mainMaxId = mainRepository.findMaxId();
+        Long mirrorMaxId = mirrorRepository.findMaxId();
+        if (mainMaxId == null || mirrorMaxId == null) {
+            return mainMaxId != null ? mainMaxId : mirrorMaxId;
+        }
+        return Math.max(mainMaxId, mirrorMaxId);
+    }
+
+    /**
+     * Returns random sample of IDs, half of which is taken from each repository.
+     *
+     * @param sampleSize expected number of IDs in sample
+     * @return a list of row IDs in no particular order
+     */
+    @Override
+    public List<Long> keySample(int sampleSize) {
+        List<Long> ids = new ArrayList<>(mainRepository.findIdSample(sampleSize / 2));
+        ids.addAll(mirrorRepository.findIdSample(sampleSize - sampleSize / 2));
+        logger.debug("< {} sampled {} IDs are loaded from Main and Mirror", ids.size(), name);
+        return ids;
+    }
+
+    /**
+     * Returns all rows from main repository ordered by ID. Rows are loaded page by page while iterating.
+     *
+     * @return an iterator over rows
+     */
+    @Override
+    public Iterator<Row> mainRows() {
+        logger.debug("< {} rows are streamed from Main", name);
+        return mainRepository.findAllOrderedById();
+    }
+
+    /**
+     * Returns all rows from mirror repository ordered by ID. Rows are loaded page by page while iterating.
+     *
+     * @return an iterator over rows
+     */
+    @Override
+    public Iterator<Row> mirrorRows() {
+        logger.debug("< {} rows are streamed from Mirror", name);
+        return mirrorRepository.findAllOrderedById();
+    }
+
+    /**
+     * Returns rows from main repository with IDs in given range ordered by ID.
+     *
+     * @param fromId inclusive lower bound of ID
+     * @param toId   inclusive upper bound of ID
+     * @return an iterator over rows
+     */
+    @Override
+    public Iterator<Row> mainRows(Long fromId, Long toId) {
+        logger.debug("< {} rows with IDs {}..{} are streamed from Main", name, fromId, toId);
+        return mainRepository.findAllOrderedById(fromId, toId);
+    }
+
+    /**
+     * Returns rows from mirror repository with IDs in given range ordered by ID.
+     *
+     * @param fromId inclusive lower bound of ID
+     * @param toId   inclusive upper bound of ID
+     * @return an iterator over rows
+     */
+    @Override
+    public Iterator<Row> mirrorRows(Long fromId, Long toId) {
+        logger.debug("< {} rows with IDs {}..{} are streamed from Mirror", name, fromId, toId);
+        return mirrorRepository.findAllOrderedById(fromId, toId);
+    }
+
+    /**
+     * Returns hashes of all rows from main repository ordered by ID. Hashes are calculated by database
+     * and loaded page by page while iterating.
+     *
+     * @return an iterator over row hashes
+     */
+    @Override
+    public Iterator<RowHash> mainHashes() {
+        logger.debug("< {} hashes are streamed from Main", name);
+        return mainRepository.findHashesOrderedById();
+    }
+
+    /**
+     * Returns hashes of all rows from mirror repository ordered by ID. Hashes are calculated by database
+     * and loaded page by page while iterating.
+     *
+     * @return an iterator over row hashes
+     */
+    @Override
+    public Iterator<RowHash> mirrorHashes() {
+        logger.debug("< {} hashes are streamed from Mirror", name);
+        return mirrorRepository.findHashesOrderedById();
+    }
+
+    /**
+     * Returns hashes of rows from main repository with IDs in given range ordered by ID.
+     *
+     * @param fromId inclusive lower bound of ID
+     * @param toId   inclusive upper bound of ID
+     * @return an iterator over row hashes
+     */
+    @Override
+    public Iterator<RowHash> mainHashes(Long fromId, Long toId) {
+        logger.debug("< {} hashes with IDs {}..{} are streamed from Main", name, fromId, toId);
+        return mainRepository.findHashesOrderedById(fromId, toId);
+    }
+
+    /**
+     * Returns hashes of rows from mirror repository with IDs in given range ordered by ID.
+     *
+     * @param fromId inclusive lower bound of ID
+     * @param toId   inclusive upper bound of ID
+     * @return an iterator over row hashes
+     */
+    @Override
+    public Iterator<RowHash> mirrorHashes(Long fromId, Long toId) {
+        logger.debug("< {} hashes with IDs {}..{} are streamed from Mirror", name, fromId, toId);
+        return mirrorRepository.findHashesOrderedById(fromId, toId);
+    }
+
+    /**
+     * Returns rows from main repository with given IDs.
+     *
+     * @param ids row IDs
+     * @return a list of rows
+     */
+    @Override
+    public List<Row> mainRows(Collection<Long> ids) {
+        List<Row> rows = mainRepository.findByIds(ids);
+        logger.debug("< {} {} rows are loaded from Main", rows.size(), name);
+        return rows;
+    }
+
+    /**
+     * Returns rows from mirror repository with given IDs.
+     *
+     * @param ids row IDs
+     * @return a list of rows
+     */
+    @Override
+    public List<Row> mirrorRows(Collection<Long> ids) {
+        List<Row> rows = mirrorRepository.findByIds(ids);
+        logger.debug("< {} {} rows are loaded from Mirror", rows.size(), name);
+        return rows;
+    }
+
+    /**
+     * Returns sequence number of the last change logged for main repository.
+     *
+     * @return sequence number or 0, if change log is empty
+     */
+    @Override
+    public long mainChangeSeq() {
+        return mainRepository.findLastChangeSeq();
+    }
+
+    /**
+     * Returns sequence number of the last change logged for mirror repository.
+     *
+     * @return sequence number or 0, if change log is empty
+     */
+    @Override
+    public long mirrorChangeSeq() {
+        return mirrorRepository.findLastChangeSeq();
+    }
+
+    /**
+     * Returns changes logged for main repository after given sequence number.
+     *
+     * @param afterSeq exclusive lower bound of sequence number
+     * @param limit    max number of changes
+     * @return a list of changes ordered by sequence number
+     */
+    @Override
+    public List<RowChange> mainChanges(long afterSeq, int limit) {
+        List<RowChange> changes = mainRepository.findChanges(afterSeq, limit);
+        logger.debug("< {} {} changes are loaded from Main change log", changes.size(), name);
+        return changes;
+    }
+
+    /**
+     * Returns changes logged for mirror repository after given sequence number.
+     *
+     * @param afterSeq exclusive lower bound of sequence number
+     * @param limit    max number of changes
+     * @return a list of changes ordered by sequence number
+     */
+    @Override
+    public List<RowChange> mirrorChanges(long afterSeq, int limit) {
+        List<RowChange> changes = mirrorRepository.findChanges(afterSeq, limit);
+        logger.debug("< {} {} changes are loaded from Mirror change log", changes.size(), name);
+        return changes;
+    }
+
+    /**
+     * Removes consumed changes from main change log.
+     *
+     * @param toSeq inclusive upper bound of sequence number
+     */
+    @Override
+    public void purgeMainChanges(long toSeq) {
+        int purged = mainRepository.deleteChanges(toSeq);
+        logger.debug("- {} {} changes are purged from Main change log", purged, name);
+    }
+
+    /**
+     * Removes consumed changes from mirror change log.
+     *
+     * @param toSeq inclusive upper bound of sequence number
+     */
+    @Override
+    public void purgeMirrorChanges(long toSeq) {
+        int purged = mirrorRepository.deleteChanges(toSeq);
+        logger.debug("- {} {} changes are purged from Mirror change log", purged, name);
+    }
+
+    /**
+     * Returns checksums of rows from main repository with IDs in given range, split into buckets.
+     *
+     * @param fromId  inclusive lower bound of ID
+     * @param toId    inclusive upper bound of ID
+     * @param buckets number of buckets
+     * @return a list of bucket checksums
+     */
+    @Override
+    public List<RangeChecksum> mainChecksums(Long fromId, Long toId, int buckets) {
+        List<RangeChecksum> checksums = mainRepository.findChecksums(fromId, toId, buckets);
+        logger.debug("< {} {} checksums are loaded from Main", checksums.size(), name);
+        return checksums;
+    }
+
+    /**
+     * Returns checksums of rows from mirror repository with IDs in given range, split into buckets.
+     *
+     * @param fromId  inclusive lower bound of ID
+     * @param toId    inclusive upper bound of ID
+     * @param buckets number of buckets
+     * @return a list of bucket checksums
+     */
+    @Override
+    public List<RangeChecksum> mirrorChecksums(Long fromId, Long toId, int buckets) {
+        List<RangeChecksum> checksums = mirrorRepository.findChecksums(fromId, toId, buckets);
+        logger.debug("< {} {} checksums are loaded from Mirror", checksums.size(), name);
+        return checksums;
+    }
+
+    /**
+     * Updates old rows with new ones in main repository in batches.
+     *
+     * @param rows rows
+     */
+    @Override
+    public void updateMainRows(Collection<Row> rows) {
+        mainRepository.batchUpdate(rows);
+        logger.debug("> {} {} rows are updated in Main", rows.size(), name);
+    }
+
+    /**
+     * Updates old rows with new ones in mirror repository in batches.
+     *
+     * @param rows rows
+     */
+    @Override
+    public void updateMirrorRows(Collection<Row> rows) {
+        mirrorRepository.batchUpdate(rows);
+        logger.debug("> {} {} rows are updated in Mirror", rows.size(), name);
+    }
+
+    /**
+     * Removes rows from main repository in batches.
+     *
+     * @param rows rows
+     */
+    @Override
+    public void removeMainRows(Collection<Row> rows) {
+        mainRepository.batchDeleteByIds(ids(rows));
+        logger.debug("- {} {} rows are removed from Main", rows.size(), name);
+    }
+
+    /**
+     * Removes rows from mirror repository in batches.
+     *
+     * @param rows rows
+     */
+    @Override
+    public void removeMirrorRows(Collection<Row> rows) {
+        mirrorRepository.batchDeleteByIds(ids(rows));
+        logger.debug("- {} {} rows are removed from Mirror", rows.size(), name);
+    }
+
+    /**
+     * Adds rows to main repository in batches.
+     *
+     * @param rows rows
+     */
+    @Override
+    public void addMainRows(Collection<Row> rows) {
+        mainRepository.batchInsert(rows);
+        logger.debug("+ {} {} rows are added to Main", rows.size(), name);
+    }
+
+    /**
+     * Adds rows to mirror repository in batches.
+     *
+     * @param rows rows
+     */
+    @Override
+    public void addMirrorRows(Collection<Row> rows) {
+        mirrorRepository.batchInsert(rows);
+        logger.debug("+ {} {} rows are added to Mirror", rows.size(), name);
+    }
+
+    private List<Long> ids(Collection<Row> rows) {
+        return rows.stream().map(Row::getKey).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,43 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.TableSynchronizer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Synchronizers of all table pairs declared in configuration.
+ */
+public class TableSyncRegistry implements AutoCloseable {
+
+    private final List<TableSynchronizer> synchronizers;
+
+    public TableSyncRegistry(List<TableSynchronizer> synchronizers) {
+        this.synchronizers = Collections.unmodifiableList(synchronizers);
+    }
+
+    public List<TableSynchronizer> getSynchronizers() {
+        return synchronizers;
+    }
+
+    /**
+     * @param name name of table pair
+     * @return synchronizer of table pair or null, if it is not declared
+     */
+    public TableSynchronizer getSynchronizer(String name) {
+        for (TableSynchronizer synchronizer : synchronizers) {
+            if (synchronizer.getName().equals(name)) {
+                return synchronizer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes hash stores of all table pairs.
+     */
+    @Override
+    public void close() {
+        synchronizers.forEach(TableSynchronizer::close);
+    }
+}
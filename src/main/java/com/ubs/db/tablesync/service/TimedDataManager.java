@@ -0,0 +1,244 @@
+package com.ubs.db.tablesync.service;
+
+import com.ubs.db.tablesync.domain.IdSet;
+import com.ubs.db.tablesync.model.RangeChecksum;
+import com.ubs.db.tablesync.model.RowChange;
+import com.ubs.db.tablesync.model.RowHash;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * DataManager decorator, which records latency of each call into {@code table.sync.data.manager} timer with
+ * percentile histogram, tagged by table pair name and method. Row and hash streams are timed as a whole: time spent
+ * reading them is summed and recorded once the stream is exhausted.
+ *
+ * @param <K> key (ID) type
+ * @param <R> row type
+ */
+public class TimedDataManager<K, R> implements DataManager<K, R> {
+
+    private final DataManager<K, R> dataManager;
+
+    private final MeterRegistry registry;
+
+    private final String name;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param dataManager data manager to time
+     * @param registry    registry to publish timers to
+     * @param name        name of table pair
+     */
+    public TimedDataManager(DataManager<K, R> dataManager, MeterRegistry registry, String name) {
+        this.dataManager = dataManager;
+        this.registry = registry;
+        this.name = name;
+    }
+
+    @Override
+    public IdSet mainIdSet() {
+        return timed("mainIdSet", dataManager::mainIdSet);
+    }
+
+    @Override
+    public IdSet mirrorIdSet() {
+        return timed("mirrorIdSet", dataManager::mirrorIdSet);
+    }
+
+    @Override
+    public K maxKey() {
+        return timed("maxKey", dataManager::maxKey);
+    }
+
+    @Override
+    public List<K> keySample(int sampleSize) {
+        return timed("keySample", () -> dataManager.keySample(sampleSize));
+    }
+
+    @Override
+    public Iterator<R> mainRows() {
+        return timedStream("mainRows", dataManager::mainRows);
+    }
+
+    @Override
+    public Iterator<R> mirrorRows() {
+        return timedStream("mirrorRows", dataManager::mirrorRows);
+    }
+
+    @Override
+    public Iterator<R> mainRows(K fromKey, K toKey) {
+        return timedStream("mainRowRange", () -> dataManager.mainRows(fromKey, toKey));
+    }
+
+    @Override
+    public Iterator<R> mirrorRows(K fromKey, K toKey) {
+        return timedStream("mirrorRowRange", () -> dataManager.mirrorRows(fromKey, toKey));
+    }
+
+    @Override
+    public List<RangeChecksum> mainChecksums(K fromKey, K toKey, int buckets) {
+        return timed("mainChecksums", () -> dataManager.mainChecksums(fromKey, toKey, buckets));
+    }
+
+    @Override
+    public List<RangeChecksum> mirrorChecksums(K fromKey, K toKey, int buckets) {
+        return timed("mirrorChecksums", () -> dataManager.mirrorChecksums(fromKey, toKey, buckets));
+    }
+
+    @Override
+    public Iterator<RowHash> mainHashes() {
+        return timedStream("mainHashes", dataManager::mainHashes);
+    }
+
+    @Override
+    public Iterator<RowHash> mirrorHashes() {
+        return timedStream("mirrorHashes", dataManager::mirrorHashes);
+    }
+
+    @Override
+    public Iterator<RowHash> mainHashes(K fromKey, K toKey) {
+        return timedStream("mainHashRange", () -> dataManager.mainHashes(fromKey, toKey));
+    }
+
+    @Override
+    public Iterator<RowHash> mirrorHashes(K fromKey, K toKey) {
+        return timedStream("mirrorHashRange", () -> dataManager.mirrorHashes(fromKey, toKey));
+    }
+
+    @Override
+    public List<R> mainRows(Collection<K> keys) {
+        return timed("mainRowsByKey", () -> dataManager.mainRows(keys));
+    }
+
+    @Override
+    public List<R> mirrorRows(Collection<K> keys) {
+        return timed("mirrorRowsByKey", () -> dataManager.mirrorRows(keys));
+    }
+
+    @Override
+    public long mainChangeSeq() {
+        return timed("mainChangeSeq", dataManager::mainChangeSeq);
+    }
+
+    @Override
+    public long mirrorChangeSeq() {
+        return timed("mirrorChangeSeq", dataManager::mirrorChangeSeq);
+    }
+
+    @Override
+    public List<RowChange> mainChanges(long afterSeq, int limit) {
+        return timed("mainChanges", () -> dataManager.mainChanges(afterSeq, limit));
+    }
+
+    @Override
+    public List<RowChange> mirrorChanges(long afterSeq, int limit) {
+        return timed("mirrorChanges", () -> dataManager.mirrorChanges(afterSeq, limit));
+    }
+
+    @Override
+    public void purgeMainChanges(long toSeq) {
+        timer("purgeMainChanges").record(() -> dataManager.purgeMainChanges(toSeq));
+    }
+
+    @Override
+    public void purgeMirrorChanges(long toSeq) {
+        timer("purgeMirrorChanges").record(() -> dataManager.purgeMirrorChanges(toSeq));
+    }
+
+    @Override
+    public void updateMainRows(Collection<R> rows) {
+        timer("updateMainRows").record(() -> dataManager.updateMainRows(rows));
+    }
+
+    @Override
+    public void updateMirrorRows(Collection<R> rows) {
+        timer("updateMirrorRows").record(() -> dataManager.updateMirrorRows(rows));
+    }
+
+    @Override
+    public void removeMainRows(Collection<R> rows) {
+        timer("removeMainRows").record(() -> dataManager.removeMainRows(rows));
+    }
+
+    @Override
+    public void removeMirrorRows(Collection<R> rows) {
+        timer("removeMirrorRows").record(() -> dataManager.removeMirrorRows(rows));
+    }
+
+    @Override
+    public void addMainRows(Collection<R> rows) {
+        timer("addMainRows").record(() -> dataManager.addMainRows(rows));
+    }
+
+    @Override
+    public void addMirrorRows(Collection<R> rows) {
+        timer("addMirrorRows").record(() -> dataManager.addMirrorRows(rows));
+    }
+
+    private <T> T timed(String method, Supplier<T> call) {
+        return timer(method).record(call);
+    }
+
+    private <T> Iterator<T> timedStream(String method, Supplier<Iterator<T>> call) {
+        long started = System.nanoTime();
+        Iterator<T> stream = call.get();
+        return new TimedIterator<>(stream, timer(method), System.nanoTime() - started);
+    }
+
+    private Timer timer(String method) {
+        return timers.computeIfAbsent(method, key -> Timer.builder("table.sync.data.manager")
+                .tag("table", name)
+                .tag("method", key)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    /**
+     * Sums time spent in the wrapped iterator and records it once the iterator is exhausted.
+     */
+    private static class TimedIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> iterator;
+
+        private final Timer timer;
+
+        private long nanos;
+
+        private boolean recorded;
+
+        TimedIterator(Iterator<T> iterator, Timer timer, long nanos) {
+            this.iterator = iterator;
+            this.timer = timer;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long started = System.nanoTime();
+            boolean hasNext = iterator.hasNext();
+            nanos += System.nanoTime() - started;
+            if (!hasNext && !recorded) {
+                recorded = true;
+                timer.record(nanos, TimeUnit.NANOSECONDS);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            long started = System.nanoTime();
+            T next = iterator.next();
+            nanos += System.nanoTime() - started;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Superseded by generic ROW_HASH of V3, kept so later migrations keep their versions. Its function is removed, so the
+-- alias is created with FORCE, without loading it, and V7 drops it.
+CREATE FORCE ALIAS IF NOT EXISTS TASK_DEFINITION_HASH DETERMINISTIC FOR "com.ubs.db.tablesync.persistence.SqlFunctions.taskDefinitionHash";
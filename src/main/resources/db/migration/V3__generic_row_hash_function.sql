@@ -0,0 +1 @@
+CREATE ALIAS IF NOT EXISTS ROW_HASH DETERMINISTIC FOR "com.ubs.db.tablesync.persistence.SqlFunctions.rowHash";
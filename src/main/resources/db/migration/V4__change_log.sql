@@ -0,0 +1,17 @@
+CREATE TABLE task_definition_change_log (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    row_id BIGINT NOT NULL,
+    op CHAR(1) NOT NULL
+);
+
+CREATE TABLE task_definition_mirror_change_log (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    row_id BIGINT NOT NULL,
+    op CHAR(1) NOT NULL
+);
+
+CREATE TRIGGER task_definition_change_log_trigger AFTER INSERT, UPDATE, DELETE ON task_definition
+    FOR EACH ROW CALL "com.ubs.db.tablesync.persistence.ChangeLogTrigger";
+
+CREATE TRIGGER task_definition_mirror_change_log_trigger AFTER INSERT, UPDATE, DELETE ON task_definition_mirror
+    FOR EACH ROW CALL "com.ubs.db.tablesync.persistence.ChangeLogTrigger";
@@ -0,0 +1,21 @@
+-- H2 rebuilds altered tables under a temporary name, so change log triggers are installed again afterwards
+DROP TRIGGER task_definition_change_log_trigger;
+DROP TRIGGER task_definition_mirror_change_log_trigger;
+
+CREATE SEQUENCE task_definition_version_seq;
+ALTER TABLE task_definition ADD COLUMN row_version BIGINT
+    DEFAULT NEXT VALUE FOR task_definition_version_seq
+    ON UPDATE NEXT VALUE FOR task_definition_version_seq NOT NULL;
+CREATE INDEX task_definition_row_version_idx ON task_definition (row_version);
+
+CREATE SEQUENCE task_definition_mirror_version_seq;
+ALTER TABLE task_definition_mirror ADD COLUMN row_version BIGINT
+    DEFAULT NEXT VALUE FOR task_definition_mirror_version_seq
+    ON UPDATE NEXT VALUE FOR task_definition_mirror_version_seq NOT NULL;
+CREATE INDEX task_definition_mirror_row_version_idx ON task_definition_mirror (row_version);
+
+CREATE TRIGGER task_definition_change_log_trigger AFTER INSERT, UPDATE, DELETE ON task_definition
+    FOR EACH ROW CALL "com.ubs.db.tablesync.persistence.ChangeLogTrigger";
+
+CREATE TRIGGER task_definition_mirror_change_log_trigger AFTER INSERT, UPDATE, DELETE ON task_definition_mirror
+    FOR EACH ROW CALL "com.ubs.db.tablesync.persistence.ChangeLogTrigger";
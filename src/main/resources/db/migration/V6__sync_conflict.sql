@@ -0,0 +1,12 @@
+CREATE TABLE sync_conflict (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(255) NOT NULL,
+    row_id BIGINT NOT NULL,
+    main_hash BIGINT NOT NULL,
+    mirror_hash BIGINT NOT NULL,
+    stored_hash BIGINT,
+    detected_at TIMESTAMP NOT NULL,
+    kind VARCHAR(16) DEFAULT 'CONFLICT' NOT NULL
+);
+
+CREATE INDEX sync_conflict_row ON sync_conflict (table_name, row_id);
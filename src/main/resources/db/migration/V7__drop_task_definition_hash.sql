@@ -0,0 +1 @@
+DROP ALIAS IF EXISTS TASK_DEFINITION_HASH;
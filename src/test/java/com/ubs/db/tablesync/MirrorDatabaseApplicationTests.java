@@ -0,0 +1,96 @@
+package com.ubs.db.tablesync;
+
+import com.ubs.db.tablesync.model.TaskDefinition;
+import com.ubs.db.tablesync.persistence.MainTaskDefinitionRepository;
+import com.ubs.db.tablesync.persistence.MirrorDatabase;
+import com.ubs.db.tablesync.persistence.MirrorTaskDefinitionRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.given;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Synchronization of main and mirror tables living in two H2 databases with separate connection pools.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:maindb;DB_CLOSE_DELAY=-1",
+        "tableSync.mirrorDataSource.url=jdbc:h2:mem:mirrordb;DB_CLOSE_DELAY=-1",
+        "tableSync.mirrorDataSource.username=sa",
+        "tableSync.mirrorDataSource.maximumPoolSize=4",
+        "tableSync.mirrorDataSource.migrate=true"})
+public class MirrorDatabaseApplicationTests {
+
+    @Autowired
+    private JdbcTemplate template;
+
+    @Autowired
+    private MirrorDatabase mirrorDatabase;
+
+    @Autowired
+    private MainTaskDefinitionRepository mainRepo;
+
+    @Autowired
+    private MirrorTaskDefinitionRepository mirrorRepo;
+
+    @Value("${tableSync.mainTableName}")
+    private String mainTableName;
+
+    @Value("${tableSync.mirrorTableName}")
+    private String mirrorTableName;
+
+    @Before
+    public void setUp() {
+        truncate();
+    }
+
+    @After
+    public void tearDown() {
+        truncate();
+    }
+
+    @Test
+    public void addedTaskInMainEventuallySyncedInMirrorDatabase() {
+        assertTrue(mirrorDatabase.isSeparate());
+        TaskDefinition newTask = new TaskDefinition("New", "Task");
+        mainRepo.insert(newTask);
+
+        given()
+                .ignoreExceptionsMatching(e -> e.getMessage().startsWith("Incorrect result size"))
+                .await()
+                .atMost(60, SECONDS)
+                .until(() -> "New".equals(mirrorRepo.findByNameAndDescription(newTask).getName()));
+
+        assertEquals(Integer.valueOf(0),
+                template.queryForObject("SELECT COUNT(*) FROM " + mirrorTableName, Integer.class));
+    }
+
+    @Test
+    public void addedTaskInMirrorDatabaseEventuallySyncedInMain() {
+        TaskDefinition newTask = new TaskDefinition("New", "Task");
+        mirrorRepo.insert(newTask);
+
+        given()
+                .ignoreExceptionsMatching(e -> e.getMessage().startsWith("Incorrect result size"))
+                .await()
+                .atMost(60, SECONDS)
+                .until(() -> "New".equals(mainRepo.findByNameAndDescription(newTask).getName()));
+    }
+
+    private void truncate() {
+        template.execute("TRUNCATE TABLE " + mainTableName);
+        template.execute("TRUNCATE TABLE " + mirrorTableName);
+        mirrorDatabase.getJdbcTemplate().execute("TRUNCATE TABLE " + mainTableName);
+        mirrorDatabase.getJdbcTemplate().execute("TRUNCATE TABLE " + mirrorTableName);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ubs.db.tablesync.domain;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class HashAlgorithmTest {
+
+    @Test
+    public void xxHash64MatchesReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, HashAlgorithm.XXHASH64.hash(new byte[0], 0));
+        assertEquals(0x44BC2CF5AD770999L, HashAlgorithm.XXHASH64.hash(bytes("abc"), 3));
+    }
+
+    @Test
+    public void murmur3MatchesReferenceValues() {
+        assertEquals(0L, HashAlgorithm.MURMUR3_128.hash(new byte[0], 0));
+        assertEquals(0xCBD8A7B341BD9B02L, HashAlgorithm.MURMUR3_128.hash(bytes("hello"), 5));
+    }
+
+    @Test
+    public void hashOnlyWrittenPartOfReusedInput() {
+        HashInput input = new HashInput(4);
+        long expected = HashAlgorithm.XXHASH64.hash(input.reset().putString("short"));
+
+        input.reset().putString("a much longer value, which grows the buffer");
+        long actual = HashAlgorithm.XXHASH64.hash(input.reset().putString("short"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void distinguishFieldBoundariesAndNulls() {
+        HashInput input = new HashInput();
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            long first = algorithm.hash(input.reset().putString("ab").putString("c"));
+            long second = algorithm.hash(input.reset().putString("a").putString("bc"));
+            long nullValue = algorithm.hash(input.reset().putString(null).putString("c"));
+            long emptyValue = algorithm.hash(input.reset().putString("").putString("c"));
+
+            assertNotEquals(first, second);
+            assertNotEquals(nullValue, emptyValue);
+        }
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
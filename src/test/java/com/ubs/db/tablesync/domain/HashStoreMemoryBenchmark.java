@@ -0,0 +1,81 @@
+package com.ubs.db.tablesync.domain;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures memory per entry of ConcurrentHashMap with MD5 hex hashes against OpenAddressingHashStore in heap and
+ * off-heap mode. Run with enough heap, e.g. {@code -Xmx4g}, optional argument is number of entries.
+ */
+public class HashStoreMemoryBenchmark {
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        report("ConcurrentHashMap<Long, String>", entries, heapBytes(() -> {
+            Map<Long, String> map = new ConcurrentHashMap<>();
+            for (long id = 1; id <= entries; id++) {
+                map.put(id, DigestUtils.md5Hex(Long.toString(id)));
+            }
+            return map;
+        }));
+
+        report("OpenAddressingHashStore (heap)", entries, heapBytes(() -> fill(new OpenAddressingHashStore(), entries)));
+
+        report("OpenAddressingHashStore (off-heap)", entries, directBytes(() ->
+                fill(new OpenAddressingHashStore(1024, true), entries)));
+    }
+
+    private static HashStore fill(HashStore store, int entries) {
+        for (long id = 1; id <= entries; id++) {
+            store.put(id, Fingerprints.of(DigestUtils.md5Hex(Long.toString(id))));
+        }
+        return store;
+    }
+
+    private static long heapBytes(Allocation allocation) {
+        long before = usedHeap();
+        Object retained = allocation.allocate();
+        long after = usedHeap();
+        retained.hashCode();
+        return after - before;
+    }
+
+    private static long directBytes(Allocation allocation) {
+        long before = usedDirect();
+        Object retained = allocation.allocate();
+        long after = usedDirect();
+        retained.hashCode();
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedDirect() {
+        System.gc();
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName()))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private static void report(String name, int entries, long bytes) {
+        System.out.printf("%-36s %,14d bytes %8.1f bytes/entry%n", name, bytes, (double) bytes / entries);
+    }
+
+    @FunctionalInterface
+    private interface Allocation {
+
+        Object allocate();
+    }
+}
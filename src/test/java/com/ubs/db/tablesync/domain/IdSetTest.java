@@ -0,0 +1,61 @@
+package com.ubs.db.tablesync.domain;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdSetTest {
+
+    @Test
+    public void iterateIdsInAscendingOrder() {
+        IdSet ids = IdSet.of(7, -3, 1, 2, 3, 1_000_000_000_000L, 2, Long.MAX_VALUE, Long.MIN_VALUE);
+
+        assertEquals(Arrays.asList(Long.MIN_VALUE, -3L, 1L, 2L, 3L, 7L, 1_000_000_000_000L, Long.MAX_VALUE),
+                toList(ids));
+        assertEquals(8, ids.size());
+        assertEquals(6, ids.runs());
+    }
+
+    @Test
+    public void encodeDenseRangeInFewBytes() {
+        IdSet.Builder builder = IdSet.builder();
+        for (long id = 1; id <= 1_000_000; id++) {
+            builder.add(id);
+        }
+        IdSet ids = builder.build();
+
+        assertEquals(1_000_000, ids.size());
+        assertEquals(1, ids.runs());
+        assertTrue(ids.sizeInBytes() < 8);
+    }
+
+    @Test
+    public void subtractOverlappingRuns() {
+        IdSet ids = IdSet.of(1, 2, 3, 4, 5, 8, 9, 10, 20);
+        IdSet other = IdSet.of(0, 2, 3, 9, 10, 11, 20, 21);
+
+        assertEquals(Arrays.asList(1L, 4L, 5L, 8L), toList(ids.minus(other)));
+        assertEquals(Arrays.asList(0L, 11L, 21L), toList(other.minus(ids)));
+        assertTrue(ids.minus(ids).isEmpty());
+        assertEquals(ids, ids.minus(IdSet.empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectIdsOutOfOrder() {
+        IdSet.builder().add(2).add(1);
+    }
+
+    private static List<Long> toList(IdSet ids) {
+        List<Long> list = new ArrayList<>();
+        for (PrimitiveIterator.OfLong iterator = ids.iterator(); iterator.hasNext(); ) {
+            list.add(iterator.nextLong());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,100 @@
+package com.ubs.db.tablesync.domain;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OpenAddressingHashStoreTest {
+
+    @Test
+    public void putMatchAndRemoveHash() {
+        HashStore store = new OpenAddressingHashStore();
+
+        store.put(1L, 100L);
+        store.put(2L, 200L);
+
+        assertEquals(2, store.size());
+        assertTrue(store.matches(1L, 100L));
+        assertFalse(store.matches(1L, 200L));
+        assertFalse(store.matches(3L, 100L));
+
+        store.put(1L, 101L);
+        store.remove(2L);
+
+        assertEquals(1, store.size());
+        assertTrue(store.matches(1L, 101L));
+        assertFalse(store.contains(2L));
+    }
+
+    @Test
+    public void keepEntryWithMinimalId() {
+        HashStore store = new OpenAddressingHashStore();
+
+        store.put(Long.MIN_VALUE, 1L);
+
+        assertEquals(1, store.size());
+        assertTrue(store.matches(Long.MIN_VALUE, 1L));
+
+        store.remove(Long.MIN_VALUE);
+
+        assertEquals(0, store.size());
+        assertFalse(store.contains(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void growBeyondInitialCapacity() {
+        OpenAddressingHashStore store = new OpenAddressingHashStore(16, false);
+
+        for (long id = 1; id <= 10_000; id++) {
+            store.put(id, id * 31);
+        }
+
+        assertEquals(10_000, store.size());
+        assertTrue(store.capacity() >= 10_000);
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(store.matches(id, id * 31));
+        }
+    }
+
+    @Test
+    public void behaveAsMapOnRandomOperations() {
+        checkAgainstMap(new OpenAddressingHashStore(16, false));
+    }
+
+    @Test
+    public void behaveAsMapOnRandomOperationsOffHeap() {
+        checkAgainstMap(new OpenAddressingHashStore(16, true));
+    }
+
+    private void checkAgainstMap(HashStore store) {
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long id = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                store.remove(id);
+                expected.remove(id);
+            } else {
+                long hash = random.nextLong();
+                store.put(id, hash);
+                expected.put(id, hash);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        for (long id = 0; id < 5_000; id++) {
+            Long hash = expected.get(id);
+            assertEquals(hash != null, store.contains(id));
+            if (hash != null) {
+                assertTrue(store.matches(id, hash));
+            }
+        }
+    }
+}
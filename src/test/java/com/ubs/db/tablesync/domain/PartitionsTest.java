@@ -0,0 +1,57 @@
+package com.ubs.db.tablesync.domain;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PartitionsTest {
+
+    @Test
+    public void singleRangeForEmptySample() {
+        List<long[]> ranges = Partitions.split(Collections.emptyList(), 4, 100L);
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 100L}, ranges.get(0));
+    }
+
+    @Test
+    public void splitByQuantilesOfUnorderedSample() {
+        List<long[]> ranges = Partitions.split(Arrays.asList(7L, 1L, 5L, 3L, 8L, 2L, 6L, 4L), 4, 8L);
+
+        assertEquals(4, ranges.size());
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 2L}, ranges.get(0));
+        assertArrayEquals(new long[]{3L, 4L}, ranges.get(1));
+        assertArrayEquals(new long[]{5L, 6L}, ranges.get(2));
+        assertArrayEquals(new long[]{7L, 8L}, ranges.get(3));
+    }
+
+    @Test
+    public void keepRangesBalancedAroundIdGaps() {
+        List<Long> sample = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            sample.add(id);
+            sample.add(1_000_000L + id);
+        }
+
+        List<long[]> ranges = Partitions.split(sample, 2, 1_000_050L);
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 1_000_000L}, ranges.get(0));
+        assertArrayEquals(new long[]{1_000_001L, 1_000_050L}, ranges.get(1));
+    }
+
+    @Test
+    public void skipDuplicateBoundaries() {
+        List<long[]> ranges = Partitions.split(Arrays.asList(5L, 5L, 5L, 5L), 4, 10L);
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 4L}, ranges.get(0));
+        assertArrayEquals(new long[]{5L, 10L}, ranges.get(1));
+    }
+}
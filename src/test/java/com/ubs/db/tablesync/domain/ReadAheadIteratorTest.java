@@ -0,0 +1,80 @@
+package com.ubs.db.tablesync.domain;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadAheadIteratorTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void keepOrderOfSource() {
+        List<Long> source = LongStream.range(0, 1000).boxed().collect(Collectors.toList());
+
+        List<Long> read = new ArrayList<>();
+        try (ReadAheadIterator<Long> iterator = new ReadAheadIterator<>(source.iterator(), executor, 7, 2)) {
+            iterator.forEachRemaining(read::add);
+        }
+
+        assertEquals(source, read);
+    }
+
+    @Test
+    public void rethrowFailureAfterElementsReadBeforeIt() {
+        Iterator<Long> failing = new Iterator<Long>() {
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Long next() {
+                if (next == 3) {
+                    throw new IllegalStateException("source failed");
+                }
+                return next++;
+            }
+        };
+
+        List<Long> read = new ArrayList<>();
+        try (ReadAheadIterator<Long> iterator = new ReadAheadIterator<>(failing, executor, 2, 2)) {
+            iterator.forEachRemaining(read::add);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("source failed", e.getMessage());
+        }
+        assertEquals(3, read.size());
+    }
+
+    @Test
+    public void stopReadingWhenClosed() throws InterruptedException {
+        Iterator<Long> endless = LongStream.iterate(0, i -> i + 1).iterator();
+
+        try (ReadAheadIterator<Long> iterator = new ReadAheadIterator<>(endless, executor, 10, 2)) {
+            assertTrue(iterator.hasNext());
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,76 @@
+package com.ubs.db.tablesync.domain;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SortedMergeTest {
+
+    @Test
+    public void pairElementsWithTheSameKey() {
+        List<String> pairs = Flux.from(new SortedMerge<>(Flux.just(1L, 2L, 4L, 6L), Flux.just(2L, 3L, 4L, 7L),
+                Long::longValue, 2))
+                .map(pair -> pair.getMain() + ":" + pair.getMirror())
+                .collectList()
+                .block();
+
+        assertEquals(Arrays.asList("1:null", "2:2", "null:3", "4:4", "6:null", "null:7"), pairs);
+    }
+
+    @Test
+    public void requestSourcesOnlyAheadOfDemand() {
+        AtomicLong mainRequested = new AtomicLong();
+        AtomicLong mirrorRequested = new AtomicLong();
+        Flux<Long> main = Flux.range(0, 1000).map(Integer::longValue).doOnRequest(mainRequested::addAndGet);
+        Flux<Long> mirror = Flux.range(0, 1000).map(Integer::longValue).doOnRequest(mirrorRequested::addAndGet);
+
+        List<SortedMerge.Pair<Long>> pairs = new ArrayList<>();
+        new SortedMerge<>(main, mirror, Long::longValue, 8).subscribe(new Subscriber<SortedMerge.Pair<Long>>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(10);
+            }
+
+            @Override
+            public void onNext(SortedMerge.Pair<Long> pair) {
+                pairs.add(pair);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                fail(e.toString());
+            }
+
+            @Override
+            public void onComplete() {
+                fail();
+            }
+        });
+
+        assertEquals(10, pairs.size());
+        assertTrue(mainRequested.get() <= 10 + 8);
+        assertTrue(mirrorRequested.get() <= 10 + 8);
+    }
+
+    @Test
+    public void passFailureOfEitherSource() {
+        Flux<Long> failing = Flux.concat(Flux.just(1L), Flux.error(new IllegalStateException("source failed")));
+
+        try {
+            Flux.from(new SortedMerge<>(Flux.just(1L, 2L, 3L), failing, Long::longValue, 4)).blockLast();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("source failed", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,1210 @@
+package com.ubs.db.tablesync.domain;
+
+import com.ubs.db.tablesync.model.Conflict;
+import com.ubs.db.tablesync.model.RangeChecksum;
+import com.ubs.db.tablesync.model.RowHash;
+import com.ubs.db.tablesync.model.Row;
+import com.ubs.db.tablesync.model.RowChange;
+import com.ubs.db.tablesync.model.TableDefinition;
+import com.ubs.db.tablesync.service.ConflictHandler;
+import com.ubs.db.tablesync.service.DataManager;
+import com.ubs.db.tablesync.service.HashService;
+import com.ubs.db.tablesync.service.JdbcReactiveDataManager;
+import com.ubs.db.tablesync.service.LegacyRowHashService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TableSynchronizerTest {
+
+    private static final TableDefinition TABLE = new TableDefinition("task_definition", "task_definition",
+            "task_definition_mirror", "id", Arrays.asList("id", "name", "description"));
+
+    @InjectMocks
+    private TableSynchronizer tableSynchronizer;
+
+    @Mock
+    private HashService<Row> hashService;
+
+    @Mock
+    private DataManager<Long, Row> dataManager;
+
+    @Mock
+    private ConflictHandler conflictHandler;
+
+    private HashStore hashStore;
+
+    private SyncSettings settings;
+
+    private Row first = row(1L, "first", "desc");
+    private Row second = row(2L, "second", "desc");
+    private Row third = row(3L, "third", "desc");
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        hashStore = new OpenAddressingHashStore();
+        ReflectionTestUtils.setField(tableSynchronizer, "hashStore", hashStore);
+        ReflectionTestUtils.setField(tableSynchronizer, "table", TABLE);
+        ReflectionTestUtils.setField(tableSynchronizer, "transactionManager", mock(PlatformTransactionManager.class));
+        settings = tableSynchronizer.getSettings();
+
+        first = row(1L, "first", "desc");
+        second = row(2L, "second", "desc");
+        third = row(3L, "third", "desc");
+
+        when(hashService.hash(eq(first))).thenReturn(Fingerprints.of("first-hash"));
+        when(hashService.hash(eq(second))).thenReturn(Fingerprints.of("second-hash"));
+        when(hashService.hash(eq(third))).thenReturn(Fingerprints.of("third-hash"));
+        when(conflictHandler.handle(any(Conflict.class))).thenReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        tableSynchronizer = null;
+        dataManager = null;
+        hashService = null;
+        conflictHandler = null;
+        hashStore = null;
+        settings = null;
+    }
+
+    @Test
+    public void noSyncForEmptyLists() {
+        when(dataManager.mainRows()).thenReturn(rows());
+        when(dataManager.mirrorRows()).thenReturn(rows());
+
+        tableSynchronizer.sync();
+
+        assertEquals(0, tableSynchronizer.size());
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void removeRowAndHashFromMirrorIfRowWasRemovedFromMainAndHashIsNotEmpty() {
+        when(dataManager.mainRows()).thenReturn(rows());
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(0, tableSynchronizer.size());
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, times(1)).removeMirrorRows(eq(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void addRowAndHashToMainIfRowWasAddedToMirrorAndHashIsEmpty() {
+        when(dataManager.mainRows()).thenReturn(rows());
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        assumeTrue(tableSynchronizer.size() == 0);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+
+        verify(dataManager, times(1)).addMainRows(eq(Arrays.asList(first, second)));
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void removeRowAndHashFromMainIfRowWasRemovedFromMirrorAndHashIsNotEmpty() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows());
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(0, tableSynchronizer.size());
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, times(1)).removeMainRows(eq(Arrays.asList(first, second)));
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void addRowAndHashToMirrorIfRowWasAddedToMainAndHashIsEmpty() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows());
+
+        assumeTrue(tableSynchronizer.size() == 0);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, times(1)).addMirrorRows(eq(Arrays.asList(first, second)));
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void addRowsToMirrorInBatchesOfConfiguredSize() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows());
+
+        settings.setBatchSize(2);
+
+        assumeTrue(tableSynchronizer.size() == 0);
+        tableSynchronizer.sync();
+
+        assertEquals(3, tableSynchronizer.size());
+        verify(dataManager, times(1)).addMirrorRows(eq(Arrays.asList(first, second)));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(third)));
+        verify(dataManager, never()).addMainRows(any());
+    }
+
+    @Test
+    public void retryFailedBatchRowByRowAndKeepHashOfFailedRow() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows());
+        doThrow(new IllegalStateException("Batch failed"))
+                .when(dataManager).addMirrorRows(eq(Arrays.asList(first, second, third)));
+        doThrow(new IllegalStateException("Row failed")).when(dataManager).addMirrorRows(eq(singletonList(second)));
+
+        assertEquals(2, tableSynchronizer.sync());
+
+        assertEquals(2, tableSynchronizer.size());
+        assertFalse(hashStore.contains(2L));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(first)));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(third)));
+        verify(conflictHandler, never()).handle(any(Conflict.class));
+    }
+
+    @Test
+    public void compareRowsAgainInsteadOfRetryingThemIfMainCommitFailsAfterMirrorCommit() {
+        PlatformTransactionManager mainTransactionManager = mock(PlatformTransactionManager.class);
+        doThrow(new IllegalStateException("Main commit failed")).when(mainTransactionManager).commit(any());
+        ReflectionTestUtils.setField(tableSynchronizer, "transactionManager", mainTransactionManager);
+        ReflectionTestUtils.setField(tableSynchronizer, "mirrorTransactionManager",
+                mock(PlatformTransactionManager.class));
+        settings.setQuarantineAttempts(1);
+        when(dataManager.mainRows()).thenReturn(rows(first)).thenReturn(rows(first));
+        when(dataManager.mirrorRows()).thenReturn(rows()).thenReturn(rows(first));
+
+        assertEquals(0, tableSynchronizer.sync());
+
+        assertEquals(0, tableSynchronizer.quarantined());
+        assertFalse(hashStore.contains(1L));
+        verify(dataManager, times(1)).addMirrorRows(any());
+
+        tableSynchronizer.sync();
+
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        verify(dataManager, times(1)).addMirrorRows(any());
+    }
+
+    @Test
+    public void quarantineRowFailingMaxAttempts() {
+        when(dataManager.mainRows()).thenReturn(rows(second)).thenReturn(rows(second)).thenReturn(rows(second));
+        when(dataManager.mirrorRows()).thenReturn(rows()).thenReturn(rows()).thenReturn(rows());
+        doThrow(new IllegalStateException("Row failed")).when(dataManager).addMirrorRows(eq(singletonList(second)));
+        settings.setQuarantineAttempts(2);
+
+        tableSynchronizer.sync();
+        tableSynchronizer.sync();
+        tableSynchronizer.sync();
+
+        assertEquals(1, tableSynchronizer.quarantined());
+        assertEquals(0, tableSynchronizer.size());
+        //each of two failed attempts writes the batch and then the row alone, the third sync skips the row
+        verify(dataManager, times(4)).addMirrorRows(any());
+        ArgumentCaptor<Conflict> conflict = ArgumentCaptor.forClass(Conflict.class);
+        verify(conflictHandler, times(1)).handle(conflict.capture());
+        assertEquals(Conflict.Kind.QUARANTINE, conflict.getValue().getKind());
+        assertEquals(2L, conflict.getValue().getId());
+    }
+
+    @Test
+    public void reportMutationsAndPhasesToMetrics() {
+        SyncMetrics metrics = mock(SyncMetrics.class);
+        ReflectionTestUtils.setField(tableSynchronizer, "metrics", metrics);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(second));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        tableSynchronizer.sync();
+
+        verify(metrics).mutations(SyncMetrics.Side.MIRROR, SyncMetrics.Mutation.ADD, 1);
+        verify(metrics).mutations(SyncMetrics.Side.MAIN, SyncMetrics.Mutation.ADD, 0);
+        verify(metrics).conflicts(0);
+        verify(metrics).run(eq(2L), anyLong());
+        for (SyncMetrics.Phase phase : SyncMetrics.Phase.values()) {
+            verify(metrics).phase(eq(phase), anyLong());
+        }
+    }
+
+    @Test
+    public void recordDecisionsToJournal() {
+        SyncJournal journal = mock(SyncJournal.class);
+        ReflectionTestUtils.setField(tableSynchronizer, "journal", journal);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(second));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        tableSynchronizer.sync();
+
+        verify(journal).record(SyncJournal.Decision.ADD, SyncMetrics.Side.MIRROR, 1L, Fingerprints.of("first-hash"),
+                0L);
+        verify(journal).flush();
+        verifyNoMoreInteractions(journal);
+    }
+
+    @Test
+    public void planDiffWithoutWriting() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(second, row(3L, "changed", "desc")));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        SyncPlan plan = tableSynchronizer.plan();
+
+        assertEquals(2, plan.size());
+        assertEquals(1, plan.count(SyncJournal.Decision.ADD, SyncMetrics.Side.MIRROR));
+        assertEquals(1, plan.conflicts());
+        assertEquals(1L, plan.getId(0));
+        assertEquals(Fingerprints.of("first-hash"), plan.getMainHash(0));
+        assertEquals(0L, plan.getMirrorHash(0));
+        assertEquals(1, hashStore.size());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(conflictHandler, never()).handle(any(Conflict.class));
+    }
+
+    @Test
+    public void applyPlannedRowsNotChangedSincePlan() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(second));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        SyncPlan plan = tableSynchronizer.plan();
+        assumeTrue(plan.size() == 1);
+
+        when(dataManager.mainRows(anyCollection())).thenReturn(singletonList(first));
+        when(dataManager.mirrorRows(anyCollection())).thenReturn(emptyList());
+
+        assertEquals(1, tableSynchronizer.apply(plan));
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        verify(dataManager, times(1)).mainRows(eq(new TreeSet<>(singletonList(1L))));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(first)));
+    }
+
+    @Test
+    public void skipPlannedRowsChangedSincePlan() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(second));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        SyncPlan plan = tableSynchronizer.plan();
+        assumeTrue(plan.size() == 1);
+
+        Row changed = row(1L, "changed", "desc");
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+        when(dataManager.mainRows(anyCollection())).thenReturn(singletonList(changed));
+        when(dataManager.mirrorRows(anyCollection())).thenReturn(emptyList());
+
+        assertEquals(0, tableSynchronizer.apply(plan));
+        assertFalse(hashStore.contains(1L));
+        verify(dataManager, never()).addMirrorRows(any());
+    }
+
+    @Test
+    public void doNothingIfNoChanges() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void updateFirstRowInMainIfHashIsDifferentForChangedRowInMirror() {
+        Row changed = row(1L, "changed", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(changed, second));
+
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("changed-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, times(1)).updateMainRows(eq(singletonList(changed)));
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void updateMiddleRowInMainIfHashIsDifferentForChangedRowInMirror() {
+        Row changed = row(2L, "changed", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, changed, third));
+
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, times(1)).updateMainRows(eq(singletonList(changed)));
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void updateLastRowInMainIfHashIsDifferentForChangedRowInMirror() {
+        Row changed = row(2L, "changed", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, changed));
+
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, times(1)).updateMainRows(eq(singletonList(changed)));
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void updateFirstRowInMirrorIfHashIsDifferentForChangedRowInMain() {
+        Row changed = row(1L, "changed", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(changed, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("changed-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void updateMiddleRowInMirrorIfHashIsDifferentForChangedRowInMain() {
+        Row changed = row(2L, "changed", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(first, changed, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second, third));
+
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void updateLastRowInMirrorIfHashIsDifferentForChangedRowInMain() {
+        Row changed = row(2L, "changed", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(first, changed));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void callConflictHandlerAndRemoveHashIfBothRowsAreChangedAndHashesAreDifferentForBothRows() {
+        Row changedMain = row(2L, "changed-main", "desc");
+        Row changedMirror = row(2L, "changed-mirror", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(first, changedMain));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, changedMirror));
+
+        when(hashService.hash(eq(changedMain))).thenReturn(Fingerprints.of("changed-main-hash"));
+        when(hashService.hash(eq(changedMirror))).thenReturn(Fingerprints.of("changed-mirror-hash"));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(1, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertFalse(hashStore.contains(2L));    //hash removed
+
+        ArgumentCaptor<Conflict> conflict = ArgumentCaptor.forClass(Conflict.class);
+        verify(conflictHandler, times(1)).handle(conflict.capture());
+        assertEquals(2L, conflict.getValue().getId());
+        assertEquals(Fingerprints.of("changed-main-hash"), conflict.getValue().getMainHash());
+        assertEquals(Fingerprints.of("changed-mirror-hash"), conflict.getValue().getMirrorHash());
+        assertEquals(Long.valueOf(Fingerprints.of("second-hash")), conflict.getValue().getStoredHash());
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void handleSameConflictOnceUntilRowChangesAgain() {
+        Row changedMain = row(2L, "changed-main", "desc");
+        Row changedMirror = row(2L, "changed-mirror", "desc");
+        Row changedAgain = row(2L, "changed-again", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(changedMain)).thenReturn(rows(changedMain)).thenReturn(rows(changedAgain));
+        when(dataManager.mirrorRows()).thenReturn(rows(changedMirror)).thenReturn(rows(changedMirror)).thenReturn(rows(changedMirror));
+
+        when(hashService.hash(eq(changedMain))).thenReturn(Fingerprints.of("changed-main-hash"));
+        when(hashService.hash(eq(changedMirror))).thenReturn(Fingerprints.of("changed-mirror-hash"));
+        when(hashService.hash(eq(changedAgain))).thenReturn(Fingerprints.of("changed-again-hash"));
+
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        tableSynchronizer.sync();
+        tableSynchronizer.sync();
+        verify(conflictHandler, times(1)).handle(any(Conflict.class));
+
+        tableSynchronizer.sync();
+        verify(conflictHandler, times(2)).handle(any(Conflict.class));
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+    }
+
+    @Test
+    public void handConflictOverAgainIfItWasDroppedByFullQueue() {
+        Row changedMain = row(2L, "changed-main", "desc");
+        Row changedMirror = row(2L, "changed-mirror", "desc");
+
+        when(dataManager.mainRows()).thenReturn(rows(changedMain)).thenReturn(rows(changedMain)).thenReturn(rows(changedMain));
+        when(dataManager.mirrorRows()).thenReturn(rows(changedMirror)).thenReturn(rows(changedMirror)).thenReturn(rows(changedMirror));
+
+        when(hashService.hash(eq(changedMain))).thenReturn(Fingerprints.of("changed-main-hash"));
+        when(hashService.hash(eq(changedMirror))).thenReturn(Fingerprints.of("changed-mirror-hash"));
+
+        BlockingQueue<Conflict> queue = new ArrayBlockingQueue<>(1);
+        queue.add(new Conflict(TABLE.getName(), 1L, 1L, 1L, null, Instant.now()));
+        ConflictHandler fullHandler = new ConflictHandler();
+        ReflectionTestUtils.setField(fullHandler, "queue", queue);
+        ReflectionTestUtils.setField(tableSynchronizer, "conflictHandler", fullHandler);
+
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        tableSynchronizer.sync();
+        assertEquals(1L, queue.remove().getId());
+        assertTrue(queue.isEmpty());
+
+        tableSynchronizer.sync();
+        assertEquals(2L, queue.remove().getId());
+
+        tableSynchronizer.sync();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void removeFirstRowFromMirrorAndHashIfRemovedInMain() {
+        when(dataManager.mainRows()).thenReturn(rows(second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second, third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertFalse(hashStore.contains(1L));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, times(1)).removeMirrorRows(eq(singletonList(first)));
+    }
+
+    @Test
+    public void removeMiddleRowFromMirrorAndHashIfRemovedInMain() {
+        when(dataManager.mainRows()).thenReturn(rows(first, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second, third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertFalse(hashStore.contains(2L));
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, times(1)).removeMirrorRows(eq(singletonList(second)));
+    }
+
+    @Test
+    public void addMiddleRowAndHashToMainIfRowWasAddedToMirrorAndHashIsEmpty() {
+        when(dataManager.mainRows()).thenReturn(rows(first, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second, third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+
+        verify(dataManager, times(1)).addMainRows(eq(singletonList(second)));
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void removeLastRowFromMirrorAndHashIfRemovedInMain() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second, third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+        assertFalse(hashStore.contains(3L));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).removeMainRows(any());
+        verify(dataManager, times(1)).removeMirrorRows(eq(singletonList(third)));
+    }
+
+    @Test
+    public void removeFirstRowFromMainAndHashIfRemovedInMirror() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(second, third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertFalse(hashStore.contains(1L));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, times(1)).removeMainRows(eq(singletonList(first)));
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void removeMiddleRowFromMainAndHashIfRemovedInMirror() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertFalse(hashStore.contains(2L));
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, times(1)).removeMainRows(eq(singletonList(second)));
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void removeLastRowFromMainAndHashIfRemovedInMirror() {
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 3);
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+        assertFalse(hashStore.contains(3L));
+
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, times(1)).removeMainRows(eq(singletonList(third)));
+        verify(dataManager, never()).removeMirrorRows(any());
+    }
+
+    @Test
+    public void storeHashWithoutMutationsIfRowsAreEqualAndHashIsEmpty() {
+        when(dataManager.mainRows()).thenReturn(rows(first));
+        when(dataManager.mirrorRows()).thenReturn(rows(first));
+
+        assumeTrue(tableSynchronizer.size() == 0);
+        tableSynchronizer.sync();
+
+        assertEquals(1, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+
+        verify(conflictHandler, never()).handle(any(Conflict.class));
+        verify(dataManager, never()).addMainRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+        verify(dataManager, never()).updateMainRows(any());
+        verify(dataManager, never()).updateMirrorRows(any());
+    }
+
+    @Test
+    public void mergeOnlyDivergentRangesAfterFirstFullScan() {
+        settings.setRangeDiffFanout(2);
+        settings.setRangeDiffLeafSize(1);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+        tableSynchronizer.sync();
+        assumeTrue(tableSynchronizer.size() == 2);
+
+        when(dataManager.mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 1, 3, 3, 6)));
+        when(dataManager.mirrorChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 1, 2, 2, 3)));
+        when(dataManager.mainChecksums(1L, 3L, 2))
+                .thenReturn(Arrays.asList(checksum(0, 1, 2, 2, 3), checksum(1, 3, 3, 1, 3)));
+        when(dataManager.mirrorChecksums(1L, 3L, 2))
+                .thenReturn(singletonList(checksum(0, 1, 2, 2, 3)));
+        when(dataManager.mainRows(3L, 3L)).thenReturn(rows(third));
+        when(dataManager.mirrorRows(3L, 3L)).thenReturn(rows());
+
+        tableSynchronizer.sync();
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, times(1)).mainRows();
+        verify(dataManager, never()).mainRows(eq(1L), anyLong());
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(third)));
+        verify(dataManager, never()).addMainRows(any());
+    }
+
+    @Test
+    public void skipSyncIfFingerprintsDidNotChange() {
+        settings.setFingerprintSkip(true);
+        when(dataManager.mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 1, 2, 2, 3)));
+        when(dataManager.mirrorChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 1, 2, 2, 3)));
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        tableSynchronizer.sync();
+        tableSynchronizer.sync();
+
+        verify(dataManager, times(1)).mainRows();
+        verify(dataManager, times(1)).mirrorRows();
+
+        when(dataManager.mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 1, 3, 3, 6)));
+        when(dataManager.mainRows()).thenReturn(rows(first, second, third));
+
+        tableSynchronizer.sync();
+
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(third)));
+    }
+
+    @Test
+    public void reuseFingerprintsAsRootChecksumsOfRangeDiff() {
+        settings.setFingerprintSkip(true);
+        settings.setRangeDiffFanout(2);
+        settings.setRangeDiffLeafSize(2);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+        tableSynchronizer.sync();
+        assumeTrue(tableSynchronizer.size() == 2);
+
+        when(dataManager.mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 1, 3, 3, 6)));
+        when(dataManager.mirrorChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1))
+                .thenReturn(singletonList(checksum(0, 3, 3, 1, 3)));
+        when(dataManager.mainChecksums(1L, 3L, 2))
+                .thenReturn(Arrays.asList(checksum(0, 1, 2, 2, 3), checksum(1, 3, 3, 1, 3)));
+        when(dataManager.mirrorChecksums(1L, 3L, 2))
+                .thenReturn(singletonList(checksum(1, 3, 3, 1, 3)));
+        when(dataManager.mainRows(1L, 2L)).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows(1L, 2L)).thenReturn(rows());
+
+        tableSynchronizer.sync();
+
+        verify(dataManager, times(2)).mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        verify(dataManager, times(2)).mirrorChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        verify(dataManager, times(1)).mainRows(1L, 2L);
+    }
+
+    @Test
+    public void takeNoFingerprintsToSyncLoggedChanges() {
+        settings.setFingerprintSkip(true);
+        settings.setChangeLog(true);
+        settings.setChangeLogBatchSize(10);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+
+        tableSynchronizer.sync();
+        tableSynchronizer.sync();
+        tableSynchronizer.sync();
+
+        verify(dataManager, times(1)).mainChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        verify(dataManager, times(1)).mirrorChecksums(Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        verify(dataManager, times(2)).mainChanges(0L, 10);
+    }
+
+    @Test
+    public void syncOnlyLoggedChangesAfterFirstFullScan() {
+        settings.setChangeLog(true);
+        settings.setChangeLogBatchSize(10);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+        when(dataManager.mainChangeSeq()).thenReturn(5L);
+        when(dataManager.mirrorChangeSeq()).thenReturn(3L);
+        tableSynchronizer.sync();
+        assumeTrue(tableSynchronizer.size() == 2);
+
+        Row changed = row(2L, "changed", "desc");
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+        hashStore.put(4L, Fingerprints.of("fourth-hash"));
+        when(dataManager.mainChanges(5L, 10)).thenReturn(Arrays.asList(
+                new RowChange(6L, 2L, RowChange.Operation.UPDATE),
+                new RowChange(7L, 4L, RowChange.Operation.DELETE)));
+        when(dataManager.mainRows(anyCollection())).thenReturn(singletonList(changed));
+        when(dataManager.mirrorRows(anyCollection())).thenReturn(singletonList(second));
+
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+        assertFalse(hashStore.contains(4L));
+
+        verify(dataManager, times(1)).mainRows();
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+        verify(dataManager, times(1)).mainChanges(7L, 10);
+        verify(dataManager, times(2)).mirrorChanges(3L, 10);
+        verify(dataManager, times(1)).purgeMainChanges(7L);
+        verify(dataManager, times(2)).purgeMirrorChanges(3L);
+    }
+
+    @Test
+    public void retryRowFailedInChangeLogModeUntilQuarantined() {
+        settings.setChangeLog(true);
+        settings.setChangeLogBatchSize(10);
+        settings.setQuarantineAttempts(2);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+        when(dataManager.mainChangeSeq()).thenReturn(5L);
+        tableSynchronizer.sync();
+        assumeTrue(tableSynchronizer.size() == 2);
+
+        when(dataManager.mainChanges(5L, 10)).thenReturn(singletonList(
+                new RowChange(6L, 3L, RowChange.Operation.INSERT)));
+        when(dataManager.mainRows(anyCollection())).thenReturn(singletonList(third));
+        when(dataManager.mirrorRows(anyCollection())).thenReturn(emptyList());
+        doThrow(new IllegalStateException("Row failed")).when(dataManager).addMirrorRows(eq(singletonList(third)));
+
+        tableSynchronizer.sync();
+        assertEquals(0, tableSynchronizer.quarantined());
+
+        tableSynchronizer.sync();
+        assertEquals(1, tableSynchronizer.quarantined());
+
+        tableSynchronizer.sync();
+
+        assertFalse(hashStore.contains(3L));
+        verify(dataManager, times(1)).mainChanges(5L, 10);
+        verify(dataManager, times(2)).mainRows(eq(new TreeSet<>(singletonList(3L))));
+        //each of two failed attempts writes the batch and then the row alone, the fourth sync skips the row
+        verify(dataManager, times(4)).addMirrorRows(any());
+    }
+
+    @Test
+    public void reconcileIdSetsToFindRemovedRows() {
+        settings.setChangeLog(true);
+        settings.setChangeLogBatchSize(10);
+        settings.setIdReconcileIntervalMillis(1000L);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first, second));
+        tableSynchronizer.sync();
+        assumeTrue(tableSynchronizer.size() == 2);
+
+        ReflectionTestUtils.setField(tableSynchronizer, "lastIdReconcileMillis", 0L);
+        when(dataManager.mainIdSet()).thenReturn(IdSet.of(1L));
+        when(dataManager.mirrorIdSet()).thenReturn(IdSet.of(1L, 2L));
+        when(dataManager.mainRows(anyCollection())).thenReturn(emptyList());
+        when(dataManager.mirrorRows(anyCollection())).thenReturn(singletonList(second));
+
+        tableSynchronizer.sync();
+
+        assertEquals(1, tableSynchronizer.size());
+        assertFalse(hashStore.contains(2L));
+
+        verify(dataManager, times(1)).mainRows(eq(new TreeSet<>(singletonList(2L))));
+        verify(dataManager, times(1)).removeMirrorRows(eq(singletonList(second)));
+        verify(dataManager, never()).addMainRows(any());
+    }
+
+    @Test
+    public void loadOnlyRowsToWriteWithHashPushdown() {
+        settings.setHashPushdown(true);
+        Row changed = row(2L, "changed", "desc");
+        when(dataManager.mainHashes()).thenReturn(hashes(
+                new RowHash(1L, Fingerprints.of("first-hash")),
+                new RowHash(2L, Fingerprints.of("changed-hash")),
+                new RowHash(3L, Fingerprints.of("third-hash"))));
+        when(dataManager.mirrorHashes()).thenReturn(hashes(
+                new RowHash(1L, Fingerprints.of("first-hash")),
+                new RowHash(2L, Fingerprints.of("second-hash"))));
+        when(dataManager.mainRows(singletonList(2L))).thenReturn(singletonList(changed));
+        when(dataManager.mainRows(singletonList(3L))).thenReturn(singletonList(third));
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).mainRows();
+        verify(dataManager, never()).mirrorRows();
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(third)));
+        verify(dataManager, never()).mirrorRows(anyCollection());
+        verify(hashService, never()).hash(any());
+    }
+
+    @Test
+    public void keepStoredHashOfRowRemovedBeforeItIsLoadedWithHashPushdown() {
+        settings.setHashPushdown(true);
+        when(dataManager.mainHashes()).thenReturn(hashes(
+                new RowHash(1L, Fingerprints.of("first-hash")),
+                new RowHash(2L, Fingerprints.of("changed-hash")),
+                new RowHash(3L, Fingerprints.of("third-hash"))));
+        when(dataManager.mirrorHashes()).thenReturn(hashes(
+                new RowHash(1L, Fingerprints.of("first-hash")),
+                new RowHash(2L, Fingerprints.of("second-hash"))));
+        //rows 2 and 3 are removed from main after hashes are compared
+        when(dataManager.mainRows(singletonList(2L))).thenReturn(emptyList());
+        when(dataManager.mainRows(singletonList(3L))).thenReturn(emptyList());
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+
+        tableSynchronizer.sync();
+
+        assertEquals(2, tableSynchronizer.size());
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+        assertFalse(hashStore.contains(3L));
+        verify(dataManager, never()).updateMirrorRows(any());
+        verify(dataManager, never()).addMirrorRows(any());
+    }
+
+    @Test
+    public void replaceLegacyHashesWithCurrentOnesOnFirstSync() {
+        ReflectionTestUtils.setField(tableSynchronizer, "migrateLegacyHashes", true);
+        settings.setHashPushdown(true);
+        LegacyRowHashService legacyHashService = new LegacyRowHashService(TABLE);
+        ReflectionTestUtils.setField(tableSynchronizer, "legacyHashService", legacyHashService);
+        when(dataManager.mainRows()).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows()).thenReturn(rows(first));
+
+        hashStore.put(1L, legacyHashService.hash(first));
+        hashStore.put(2L, legacyHashService.hash(second));
+
+        assumeTrue(tableSynchronizer.size() == 2);
+        tableSynchronizer.sync();
+
+        assertEquals(1, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertFalse(hashStore.contains(2L));
+
+        verify(conflictHandler, never()).handle(any(Conflict.class));
+        verify(dataManager, never()).mainHashes();
+        verify(dataManager, times(1)).removeMainRows(eq(singletonList(second)));
+        verify(dataManager, never()).addMirrorRows(any());
+    }
+
+    @Test
+    public void syncPartitionsOnWorkerPool() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        settings.setParallelism(2);
+        settings.setPartitions(2);
+        ReflectionTestUtils.setField(tableSynchronizer, "syncExecutor", executor);
+        when(dataManager.maxKey()).thenReturn(4L);
+        when(dataManager.keySample(anyInt())).thenReturn(Arrays.asList(1L, 2L, 3L, 4L));
+        when(dataManager.mainRows(Long.MIN_VALUE, 2L)).thenReturn(rows(first, second));
+        when(dataManager.mirrorRows(Long.MIN_VALUE, 2L)).thenReturn(rows(first));
+        when(dataManager.mainRows(3L, 4L)).thenReturn(rows(third));
+        when(dataManager.mirrorRows(3L, 4L)).thenReturn(rows());
+
+        hashStore.put(1L, Fingerprints.of("first-hash"));
+
+        try {
+            tableSynchronizer.sync();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(2L, Fingerprints.of("second-hash")));
+        assertTrue(hashStore.matches(3L, Fingerprints.of("third-hash")));
+
+        verify(dataManager, never()).mainRows();
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(second)));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(third)));
+        verify(dataManager, never()).addMainRows(any());
+    }
+
+    @Test
+    public void syncThroughPipelineStages() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ReflectionTestUtils.setField(tableSynchronizer, "pipelineExecutor", executor);
+        settings.setPipelineDepth(1);
+        settings.setPipelineChunkSize(1);
+        settings.setBatchSize(1);
+        Row changed = row(2L, "changed", "desc");
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+        when(dataManager.mainRows()).thenReturn(rows(first, changed, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(second, third));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        try {
+            assertEquals(2, tableSynchronizer.sync());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(first)));
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+    }
+
+    @Test
+    public void syncReactively() {
+        Scheduler scheduler = Schedulers.newParallel("sync-io-test", 2);
+        ReflectionTestUtils.setField(tableSynchronizer, "reactiveDataManager",
+                new JdbcReactiveDataManager<>(dataManager, scheduler));
+        ReflectionTestUtils.setField(tableSynchronizer, "reactiveScheduler", scheduler);
+        settings.setPipelineChunkSize(1);
+        settings.setBatchSize(1);
+        Row changed = row(2L, "changed", "desc");
+        when(hashService.hash(eq(changed))).thenReturn(Fingerprints.of("changed-hash"));
+        when(dataManager.mainRows()).thenReturn(rows(first, changed, third));
+        when(dataManager.mirrorRows()).thenReturn(rows(second, third));
+        hashStore.put(2L, Fingerprints.of("second-hash"));
+        hashStore.put(3L, Fingerprints.of("third-hash"));
+
+        try {
+            assertEquals(Integer.valueOf(2), tableSynchronizer.syncReactive().block());
+        } finally {
+            scheduler.dispose();
+        }
+
+        assertEquals(3, tableSynchronizer.size());
+        assertTrue(hashStore.matches(1L, Fingerprints.of("first-hash")));
+        assertTrue(hashStore.matches(2L, Fingerprints.of("changed-hash")));
+        verify(dataManager, times(1)).addMirrorRows(eq(singletonList(first)));
+        verify(dataManager, times(1)).updateMirrorRows(eq(singletonList(changed)));
+    }
+
+    private Iterator<RowHash> hashes(RowHash... hashes) {
+        return Arrays.asList(hashes).iterator();
+    }
+
+    private RangeChecksum checksum(long bucket, long minId, long maxId, long rowCount, long checksum) {
+        return new RangeChecksum(bucket, minId, maxId, rowCount, BigDecimal.valueOf(checksum));
+    }
+
+    private Iterator<Row> rows(Row... rows) {
+        return Arrays.asList(rows).iterator();
+    }
+
+    private static Row row(long id, String name, String description) {
+        return new Row(id, new Object[]{id, name, description});
+    }
+}
@@ -0,0 +1,93 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.SyncJournal.Decision;
+import com.ubs.db.tablesync.domain.SyncMetrics.Side;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinarySyncJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readRecordsAfterClose() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        BinarySyncJournal journal = new BinarySyncJournal(directory, 4096, 2, 1 << 20);
+        journal.record(Decision.UPDATE, Side.MIRROR, 1L, 100L, 101L);
+        journal.record(Decision.CONFLICT, null, 2L, 200L, 201L);
+        journal.close();
+
+        List<SyncJournalReader.Entry> entries = read(directory);
+        assertEquals(2, entries.size());
+        assertEquals(Decision.UPDATE, entries.get(0).getDecision());
+        assertEquals(Side.MIRROR, entries.get(0).getSide());
+        assertEquals(1L, entries.get(0).getId());
+        assertEquals(100L, entries.get(0).getMainHash());
+        assertEquals(101L, entries.get(0).getMirrorHash());
+        assertEquals(Decision.CONFLICT, entries.get(1).getDecision());
+        assertNull(entries.get(1).getSide());
+    }
+
+    @Test
+    public void keepOrderOverFullBuffersAndFiles() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        //each buffer takes 2 records and each file takes 4 buffers
+        BinarySyncJournal journal = new BinarySyncJournal(directory, 2 * BinarySyncJournal.RECORD_BYTES, 2,
+                8 * BinarySyncJournal.RECORD_BYTES);
+        for (long id = 0; id < 101; id++) {
+            journal.record(Decision.ADD, Side.MAIN, id, 0, id);
+        }
+        journal.close();
+
+        List<SyncJournalReader.Entry> entries = read(directory);
+        assertEquals(101, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i, entries.get(i).getId());
+        }
+        assertTrue(journalFiles(directory).size() > 1);
+    }
+
+    @Test
+    public void stopAtTornRecord() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        BinarySyncJournal journal = new BinarySyncJournal(directory, 4096, 2, 1 << 20);
+        journal.record(Decision.REMOVE, Side.MAIN, 1L, 100L, 0L);
+        journal.close();
+        Files.write(journalFiles(directory).get(0), new byte[BinarySyncJournal.RECORD_BYTES + 5],
+                StandardOpenOption.APPEND);
+
+        List<SyncJournalReader.Entry> entries = read(directory);
+        assertEquals(1, entries.size());
+        assertEquals(Decision.REMOVE, entries.get(0).getDecision());
+    }
+
+    private List<SyncJournalReader.Entry> read(Path directory) throws IOException {
+        List<SyncJournalReader.Entry> entries = new ArrayList<>();
+        SyncJournalReader.read(directory, entries::add);
+        return entries;
+    }
+
+    private List<Path> journalFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ubs.db.tablesync.persistence;
+
+import com.ubs.db.tablesync.domain.HashStore;
+import com.ubs.db.tablesync.domain.OpenAddressingHashStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JournaledHashStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoreStateAfterClose() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        JournaledHashStore store = open(directory, 1_000);
+        store.put(1L, 100L);
+        store.put(2L, 200L);
+        store.remove(1L);
+        store.close();
+
+        HashStore reopened = open(directory, 1_000);
+        assertEquals(1, reopened.size());
+        assertFalse(reopened.contains(1L));
+        assertTrue(reopened.matches(2L, 200L));
+    }
+
+    @Test
+    public void restoreFlushedStateFromJournalWithoutClose() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        JournaledHashStore store = open(directory, 1_000);
+        store.put(1L, 100L);
+        store.flush();
+        store.put(2L, 200L);    //not flushed, lost on crash
+
+        HashStore reopened = open(directory, 1_000);
+        assertEquals(1, reopened.size());
+        assertTrue(reopened.matches(1L, 100L));
+    }
+
+    @Test
+    public void dropTornJournalRecord() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        JournaledHashStore store = open(directory, 1_000);
+        store.put(1L, 100L);
+        store.flush();
+        Files.write(directory.resolve("hash-store.journal"), new byte[]{1, 0, 0, 0, 7},
+                StandardOpenOption.APPEND);
+
+        JournaledHashStore reopened = open(directory, 1_000);
+        assertEquals(1, reopened.size());
+        assertTrue(reopened.matches(1L, 100L));
+
+        reopened.put(2L, 200L);
+        reopened.flush();
+        assertTrue(open(directory, 1_000).matches(2L, 200L));
+    }
+
+    @Test
+    public void compactJournalIntoSnapshotOverThreshold() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        JournaledHashStore store = open(directory, 100);
+        for (long id = 1; id <= 1_000; id++) {
+            store.put(id, id * 31);
+        }
+        store.flush();
+
+        assertEquals(0, Files.size(directory.resolve("hash-store.journal")));
+        assertEquals(20 + 1_000 * 16, Files.size(directory.resolve("hash-store.snapshot")));
+
+        HashStore reopened = open(directory, 100);
+        assertEquals(1_000, reopened.size());
+        for (long id = 1; id <= 1_000; id++) {
+            assertTrue(reopened.matches(id, id * 31));
+        }
+    }
+
+    private JournaledHashStore open(Path directory, long compactionThreshold) throws IOException {
+        return new JournaledHashStore(directory, size -> new OpenAddressingHashStore(size, false),
+                compactionThreshold);
+    }
+}
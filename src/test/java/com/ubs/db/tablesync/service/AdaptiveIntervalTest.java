@@ -0,0 +1,62 @@
+package com.ubs.db.tablesync.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveIntervalTest {
+
+    @Test
+    public void stretchIntervalWhileIdleUpToMax() {
+        AdaptiveInterval interval = new AdaptiveInterval(5000, 1000, 30000, 0, 0);
+
+        assertEquals(10000, interval.afterRun(10, 0));
+        assertEquals(20000, interval.afterRun(10, 0));
+        assertEquals(30000, interval.afterRun(10, 0));
+        assertEquals(30000, interval.afterRun(10, 0));
+    }
+
+    @Test
+    public void shrinkIntervalOnChangesDownToMin() {
+        AdaptiveInterval interval = new AdaptiveInterval(5000, 1000, 30000, 0, 0);
+
+        assertEquals(2500, interval.afterRun(10, 3));
+        assertEquals(1250, interval.afterRun(10, 3));
+        assertEquals(1000, interval.afterRun(10, 3));
+    }
+
+    @Test
+    public void waitAtLeastRunDurationWithinMax() {
+        AdaptiveInterval interval = new AdaptiveInterval(5000, 1000, 30000, 0, 0);
+
+        assertEquals(8000, interval.afterRun(8000, 3));
+        assertEquals(30000, interval.afterRun(45000, 3));
+        assertEquals(1250, interval.getIntervalMillis());
+    }
+
+    @Test
+    public void rerunImmediatelyOnBacklog() {
+        AdaptiveInterval interval = new AdaptiveInterval(5000, 1000, 30000, 0, 100);
+
+        assertEquals(0, interval.afterRun(10, 100));
+        assertEquals(1250, interval.afterRun(10, 99));
+    }
+
+    @Test
+    public void backOffAfterFailure() {
+        AdaptiveInterval interval = new AdaptiveInterval(5000, 1000, 30000, 0, 0);
+
+        assertEquals(10000, interval.afterFailure());
+    }
+
+    @Test
+    public void keepJitteredDelayWithinDeviation() {
+        AdaptiveInterval interval = new AdaptiveInterval(10000, 10000, 10000, 0.1, 0);
+
+        for (int i = 0; i < 100; i++) {
+            long delay = interval.afterRun(10, 0);
+            assertTrue(delay >= 9000 && delay <= 11000);
+        }
+    }
+}